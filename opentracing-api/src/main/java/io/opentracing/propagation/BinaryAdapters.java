@@ -45,6 +45,8 @@ public final class BinaryAdapters {
      * @param buffer The ByteBuffer used as input.
      *
      * @return The new Binary carrier used for injection.
+     *
+     * @see BinaryBufferPool#injectionCarrier() for carriers whose buffer is sized at injection time.
      */
     public static BinaryInject injectionCarrier(ByteBuffer buffer) {
         return new BinaryInjectAdapter(buffer);
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.propagation;
+
+import io.opentracing.SpanContext;
+import io.opentracing.Tracer;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Packs the {@link Format.Builtin#BINARY_INJECT binary} encodings of many SpanContexts into one ByteBuffer, e.g. one
+ * per record of a messaging batch, with an offset table so that each of them can be extracted on its own and only
+ * when needed.
+ *
+ * The layout is big-endian: the number of records N as an int, then N + 1 int offsets from the start of the batch
+ * (record i spans offsets i to i + 1), then the records as written by the Tracer. A null SpanContext is stored as an
+ * empty record, and extracts to null.
+ *
+ * <pre><code>
+ * ByteBuffer batch = BinaryBatch.inject(tracer, contexts);
+ * ...
+ * BinaryBatch received = BinaryBatch.wrap(batch);
+ * SpanContext context = received.extract(tracer, index);
+ * </code></pre>
+ */
+public final class BinaryBatch {
+    private final ByteBuffer batch;
+    private final int size;
+
+    private BinaryBatch(ByteBuffer batch, int size) {
+        this.batch = batch;
+        this.size = size;
+    }
+
+    /**
+     * Injects each of the given SpanContexts into a new batch, through a single reused carrier.
+     *
+     * @param contexts the SpanContexts to inject, possibly containing nulls
+     *
+     * @return a heap ByteBuffer holding the batch between its position (0) and limit
+     */
+    public static ByteBuffer inject(Tracer tracer, List<? extends SpanContext> contexts) {
+        int size = contexts.size();
+        Writer writer = new Writer(4 + 4 * (size + 1), size);
+        writer.buffer.putInt(0, size);
+        for (int i = 0; i < size; i++) {
+            SpanContext context = contexts.get(i);
+            if (context != null) {
+                tracer.inject(context, Format.Builtin.BINARY_INJECT, writer);
+            }
+            writer.endRecord(i);
+        }
+        ByteBuffer buffer = writer.buffer;
+        buffer.position(0);
+        buffer.limit(writer.end);
+        return buffer;
+    }
+
+    /**
+     * @param batch a batch written by {@link #inject(Tracer, List)}, from its position to its limit
+     *
+     * @throws IllegalArgumentException if the batch is too short for its offset table
+     */
+    public static BinaryBatch wrap(ByteBuffer batch) {
+        ByteBuffer records = batch.slice();
+        if (records.remaining() < 8) {
+            throw new IllegalArgumentException("Batch too short");
+        }
+        int size = records.getInt(0);
+        if (size < 0 || size > (records.remaining() - 8) / 4) {
+            throw new IllegalArgumentException("Corrupted batch");
+        }
+        return new BinaryBatch(records, size);
+    }
+
+    /**
+     * @return the number of records in this batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the length of the encoded SpanContext of the given record, 0 for a null one
+     */
+    public int recordLength(int index) {
+        int start = start(index);
+        return end(index, start) - start;
+    }
+
+    /**
+     * Extracts the SpanContext of a single record, without decoding any other.
+     *
+     * @return the SpanContext of the given record, or null for an empty one
+     * @throws IllegalArgumentException if the record's offsets are corrupted
+     */
+    public SpanContext extract(Tracer tracer, int index) {
+        int start = start(index);
+        int end = end(index, start);
+        if (start == end) {
+            return null;
+        }
+        ByteBuffer record = batch.duplicate();
+        record.limit(end);
+        record.position(start);
+        return tracer.extract(Format.Builtin.BINARY_EXTRACT, BinaryAdapters.extractionCarrier(record));
+    }
+
+    private int start(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int start = batch.getInt(4 + 4 * index);
+        if (start < 4 + 4 * (size + 1) || start > batch.limit()) {
+            throw new IllegalArgumentException("Corrupted batch");
+        }
+        return start;
+    }
+
+    private int end(int index, int start) {
+        int end = batch.getInt(4 + 4 * (index + 1));
+        if (end < start || end > batch.limit()) {
+            throw new IllegalArgumentException("Corrupted batch");
+        }
+        return end;
+    }
+
+    /**
+     * The carrier every SpanContext of a batch is injected into: each injection gets the region following the
+     * previous record, growing the batch as needed.
+     */
+    static final class Writer implements BinaryInject {
+        ByteBuffer buffer;
+        int end;
+
+        Writer(int headerLength, int size) {
+            this.buffer = ByteBuffer.allocate(headerLength + 32 * size);
+            this.end = headerLength;
+            buffer.putInt(4, end);
+        }
+
+        @Override
+        public ByteBuffer injectionBuffer(int length) {
+            if (length < 1) {
+                throw new IllegalArgumentException("length needs to be larger than 0");
+            }
+            if (end + length > buffer.capacity()) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, end + length));
+                buffer.clear();
+                buffer.limit(end);
+                grown.put(buffer);
+                buffer = grown;
+            }
+            buffer.limit(end + length);
+            buffer.position(end);
+            end += length;
+            return buffer;
+        }
+
+        void endRecord(int index) {
+            buffer.putInt(4 + 4 * (index + 1), end);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.propagation;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded pool of direct (off-heap) ByteBuffers for {@link BinaryInject} carriers. Each carrier takes its buffer
+ * from the pool only when the Tracer asks for it, so the buffer is sized from the exact length the Tracer requests
+ * instead of a guess made in advance.
+ *
+ * Buffers come in power of two size classes, from {@value #MIN_BUFFER_SIZE} bytes up to the maximum buffer size.
+ * Each size class keeps at most a fixed number of idle buffers. Acquiring and releasing a pooled buffer does not
+ * allocate. When a size class is empty, a new buffer is allocated. Buffers released into a full size class, and
+ * buffers larger than the maximum buffer size, are left to the garbage collector.
+ *
+ * <pre><code>
+ * BinaryBufferPool pool = new BinaryBufferPool();
+ * PooledBinaryInject carrier = pool.injectionCarrier();
+ * tracer.inject(spanContext, Format.Builtin.BINARY_INJECT, carrier);
+ * ByteBuffer buffer = carrier.buffer();
+ * buffer.flip();
+ * channel.write(buffer);
+ * carrier.release();
+ * </code></pre>
+ *
+ * This class is thread-safe. The carriers it creates are not, but they can be reused once released.
+ */
+public final class BinaryBufferPool {
+    static final int MIN_BUFFER_SIZE = 32;
+    static final int DEFAULT_MAX_BUFFER_SIZE = 64 * 1024;
+    static final int DEFAULT_BUFFERS_PER_SIZE = 64;
+
+    private final int maxBufferSize;
+    private final int buffersPerSize;
+    /**
+     * The idle buffers of all size classes, each size class owning {@code buffersPerSize} consecutive slots.
+     */
+    private final AtomicReferenceArray<ByteBuffer> slots;
+
+    /**
+     * Creates a pool of buffers up to 64 KiB, keeping up to 64 idle buffers per size class.
+     */
+    public BinaryBufferPool() {
+        this(DEFAULT_MAX_BUFFER_SIZE, DEFAULT_BUFFERS_PER_SIZE);
+    }
+
+    /**
+     * @param maxBufferSize the largest buffer capacity to pool, rounded up to a power of two
+     * @param buffersPerSize the maximum number of idle buffers kept per size class
+     */
+    public BinaryBufferPool(int maxBufferSize, int buffersPerSize) {
+        if (maxBufferSize < 1 || maxBufferSize > 1 << 30) {
+            throw new IllegalArgumentException("maxBufferSize needs to be between 1 and 2^30");
+        }
+        if (buffersPerSize < 0) {
+            throw new IllegalArgumentException("buffersPerSize cannot be negative");
+        }
+
+        this.maxBufferSize = sizeClassCapacity(sizeClass(maxBufferSize));
+        this.buffersPerSize = buffersPerSize;
+        this.slots = new AtomicReferenceArray<ByteBuffer>((sizeClass(this.maxBufferSize) + 1) * buffersPerSize);
+    }
+
+    /**
+     * @return a new carrier taking its buffer from this pool.
+     */
+    public PooledBinaryInject injectionCarrier() {
+        return new PooledBinaryInject(this);
+    }
+
+    /**
+     * @return a cleared buffer with a capacity of at least length bytes.
+     */
+    ByteBuffer acquire(int length) {
+        if (length > maxBufferSize) {
+            return ByteBuffer.allocateDirect(length);
+        }
+
+        int sizeClass = sizeClass(length);
+        for (int i = sizeClass * buffersPerSize, end = i + buffersPerSize; i < end; i++) {
+            ByteBuffer buffer = slots.get(i);
+            if (buffer != null && slots.compareAndSet(i, buffer, null)) {
+                return buffer;
+            }
+        }
+        return ByteBuffer.allocateDirect(sizeClassCapacity(sizeClass));
+    }
+
+    void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        if (capacity > maxBufferSize || capacity != sizeClassCapacity(sizeClass(capacity))) {
+            return;
+        }
+
+        buffer.clear();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        for (int i = sizeClass(capacity) * buffersPerSize, end = i + buffersPerSize; i < end; i++) {
+            if (slots.get(i) == null && slots.compareAndSet(i, null, buffer)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the number of idle buffers held by this pool.
+     */
+    int idleBuffers() {
+        int idle = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) != null) {
+                idle++;
+            }
+        }
+        return idle;
+    }
+
+    private static int sizeClass(int length) {
+        if (length <= MIN_BUFFER_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(length - 1) - Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+    }
+
+    private static int sizeClassCapacity(int sizeClass) {
+        return MIN_BUFFER_SIZE << sizeClass;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.propagation;
+
+import io.opentracing.Tracer;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * An optional extension of {@link TextMapExtract} for carriers that can look entries up by key, so that a Tracer
+ * extracting a few known keys does not have to iterate over every entry (e.g. every HTTP header of a request).
+ *
+ * Tracers check for this interface and fall back to {@link #iterator()} when a carrier does not implement it.
+ * {@link KeyedTextMapExtractAdapter} implements it over a Map.
+ *
+ * @see Tracer#extract(Format, Object)
+ */
+public interface KeyedTextMapExtract extends TextMapExtract {
+    /**
+     * @param key the key to look up, matched the same way the carrier's backing store matches keys (e.g.
+     *            case-insensitively for HTTP headers)
+     *
+     * @return the value of the given key, or null if the carrier has no such entry
+     */
+    String get(String key);
+
+    /**
+     * Gets an iterator over the entries whose key starts with the given prefix, e.g. the baggage items of a
+     * SpanContext. Carriers backed by a sorted store only visit the matching entries; others may have to filter all
+     * of their entries, but still save the Tracer from doing so.
+     *
+     * @param prefix the key prefix, matched the same way the carrier's backing store matches keys
+     *
+     * @return the entries whose key starts with prefix
+     */
+    Iterator<Map.Entry<String, String>> prefixIterator(String prefix);
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.propagation;
+
+import io.opentracing.Tracer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+
+/**
+ * A {@link TextMapExtractAdapter} that also supports the keyed lookups of {@link KeyedTextMapExtract}, for use with
+ * Tracer.extract() ONLY (it has no mutating methods).
+ *
+ * Keyed lookups go to {@link Map#get}. Prefix scans only visit the matching range of a {@link SortedMap} ordered
+ * naturally or by {@link String#CASE_INSENSITIVE_ORDER} (the latter matching prefixes case-insensitively), and
+ * filter all the entries of any other map. Both read the map directly, so subclasses that override
+ * {@link #iterator()} must override them as well.
+ *
+ * @see Tracer#extract(Format, Object)
+ */
+public class KeyedTextMapExtractAdapter extends TextMapExtractAdapter implements KeyedTextMapExtract {
+
+    public KeyedTextMapExtractAdapter(final Map<String,String> map) {
+        super(map);
+    }
+
+    @Override
+    public String get(String key) {
+        return map.get(key);
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, String>> prefixIterator(String prefix) {
+        if (map instanceof SortedMap) {
+            SortedMap<String, String> sorted = (SortedMap<String, String>) map;
+            if (sorted.comparator() == null) {
+                return new PrefixIterator(sorted.tailMap(prefix).entrySet().iterator(), prefix, false, true);
+            }
+            if (sorted.comparator() == String.CASE_INSENSITIVE_ORDER) {
+                return new PrefixIterator(sorted.tailMap(prefix).entrySet().iterator(), prefix, true, true);
+            }
+        }
+        return new PrefixIterator(map.entrySet().iterator(), prefix, false, false);
+    }
+
+    /**
+     * Filters the entries of an iterator by key prefix. When the entries are sorted and start at the prefix, the
+     * iteration ends at the first entry that does not match.
+     */
+    static final class PrefixIterator implements Iterator<Map.Entry<String, String>> {
+        private final Iterator<Map.Entry<String, String>> entries;
+        private final String prefix;
+        private final boolean ignoreCase;
+        private final boolean sorted;
+        private Map.Entry<String, String> next;
+
+        PrefixIterator(Iterator<Map.Entry<String, String>> entries, String prefix, boolean ignoreCase,
+                       boolean sorted) {
+            this.entries = entries;
+            this.prefix = prefix;
+            this.ignoreCase = ignoreCase;
+            this.sorted = sorted;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (entries.hasNext()) {
+                Map.Entry<String, String> entry = entries.next();
+                String key = entry.getKey();
+                if (key != null && key.regionMatches(ignoreCase, 0, prefix, 0, prefix.length())) {
+                    next = entry;
+                    return;
+                }
+                if (sorted) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<String, String> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, String> entry = next;
+            advance();
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.propagation;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+/**
+ * An outbound {@link Binary} carrier whose buffer is taken from a {@link BinaryBufferPool} when the Tracer asks for
+ * it, with exactly the requested length between position 0 and its limit.
+ *
+ * After injection, the buffer's position is at the end of the injected data, so it needs to be flip()ed before it
+ * is read. Once the data has been sent, {@link #release()} hands the buffer back to the pool, after which neither
+ * the buffer nor any view of it may be used again. A released carrier can be used for another injection.
+ *
+ * @see BinaryBufferPool#injectionCarrier()
+ */
+public final class PooledBinaryInject implements BinaryInject, Closeable {
+    private final BinaryBufferPool pool;
+    private ByteBuffer buffer;
+
+    PooledBinaryInject(BinaryBufferPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public ByteBuffer injectionBuffer(int length) {
+        if (length < 1) {
+            throw new IllegalArgumentException("length needs to be larger than 0");
+        }
+        if (buffer != null) {
+            throw new IllegalStateException("The buffer of the previous injection has not been released");
+        }
+
+        buffer = pool.acquire(length);
+        buffer.limit(length);
+        return buffer;
+    }
+
+    /**
+     * @return the buffer holding the injected data, or null if nothing has been injected since the last release.
+     */
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns the buffer to the pool. Does nothing if there is no buffer to release.
+     */
+    public void release() {
+        if (buffer != null) {
+            ByteBuffer released = buffer;
+            buffer = null;
+            pool.release(released);
+        }
+    }
+
+    /**
+     * Same as {@link #release()}, so that the carrier can be used with try-with-resources.
+     */
+    @Override
+    public void close() {
+        release();
+    }
+}
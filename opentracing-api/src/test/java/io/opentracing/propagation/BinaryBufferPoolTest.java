@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.propagation;
+
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryBufferPoolTest {
+
+    @Test
+    public void testInjectionBuffer() {
+        BinaryBufferPool pool = new BinaryBufferPool();
+        PooledBinaryInject carrier = pool.injectionCarrier();
+        assertNull(carrier.buffer());
+
+        ByteBuffer buffer = carrier.injectionBuffer(19);
+        assertSame(buffer, carrier.buffer());
+        assertTrue(buffer.isDirect());
+        assertEquals(0, buffer.position());
+        assertEquals(19, buffer.limit());
+        assertEquals(32, buffer.capacity());
+    }
+
+    @Test
+    public void testSizeClasses() {
+        BinaryBufferPool pool = new BinaryBufferPool();
+        assertEquals(32, pool.acquire(1).capacity());
+        assertEquals(32, pool.acquire(32).capacity());
+        assertEquals(64, pool.acquire(33).capacity());
+        assertEquals(1024, pool.acquire(1000).capacity());
+        assertEquals(64 * 1024, pool.acquire(64 * 1024).capacity());
+        assertEquals(64 * 1024 + 1, pool.acquire(64 * 1024 + 1).capacity());
+    }
+
+    @Test
+    public void testReleaseReuses() {
+        BinaryBufferPool pool = new BinaryBufferPool();
+        PooledBinaryInject carrier = pool.injectionCarrier();
+        ByteBuffer buffer = carrier.injectionBuffer(10);
+        buffer.put((byte) 1);
+        carrier.release();
+        assertNull(carrier.buffer());
+        assertEquals(1, pool.idleBuffers());
+
+        ByteBuffer reused = carrier.injectionBuffer(20);
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(20, reused.limit());
+        assertEquals(0, pool.idleBuffers());
+    }
+
+    @Test
+    public void testReleaseTwice() {
+        BinaryBufferPool pool = new BinaryBufferPool();
+        PooledBinaryInject carrier = pool.injectionCarrier();
+        carrier.injectionBuffer(10);
+        carrier.close();
+        carrier.release();
+        assertEquals(1, pool.idleBuffers());
+    }
+
+    @Test
+    public void testBounded() {
+        BinaryBufferPool pool = new BinaryBufferPool(1024, 1);
+        PooledBinaryInject first = pool.injectionCarrier();
+        PooledBinaryInject second = pool.injectionCarrier();
+        assertNotSame(first.injectionBuffer(10), second.injectionBuffer(10));
+        first.release();
+        second.release();
+        assertEquals(1, pool.idleBuffers());
+
+        PooledBinaryInject large = pool.injectionCarrier();
+        large.injectionBuffer(2048);
+        large.release();
+        assertEquals(1, pool.idleBuffers());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNotReleased() {
+        PooledBinaryInject carrier = new BinaryBufferPool().injectionCarrier();
+        carrier.injectionBuffer(10);
+        carrier.injectionBuffer(10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLength() {
+        new BinaryBufferPool().injectionCarrier().injectionBuffer(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxBufferSize() {
+        new BinaryBufferPool(0, 1);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.propagation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import org.junit.Test;
+
+public class KeyedTextMapExtractAdapterTest {
+
+    @Test
+    public void testGet() {
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("foo", "bar");
+        KeyedTextMapExtractAdapter extractAdapter = new KeyedTextMapExtractAdapter(headers);
+        assertEquals("bar", extractAdapter.get("foo"));
+        assertNull(extractAdapter.get("baz"));
+    }
+
+    @Test
+    public void testPrefixIterator() {
+        Map<String, String> headers = new LinkedHashMap<String, String>();
+        headers.put("baggage-a", "1");
+        headers.put("accept", "*/*");
+        headers.put("baggage-b", "2");
+        headers.put("baggage", "3");
+        assertEquals(keys("baggage-a", "baggage-b"), prefixKeys(new KeyedTextMapExtractAdapter(headers), "baggage-"));
+        assertEquals(keys(), prefixKeys(new KeyedTextMapExtractAdapter(headers), "x-"));
+    }
+
+    @Test
+    public void testPrefixIteratorSorted() {
+        Map<String, String> headers = new TreeMap<String, String>();
+        headers.put("baggage-b", "2");
+        headers.put("baggage-a", "1");
+        headers.put("accept", "*/*");
+        headers.put("baggagf", "3");
+        headers.put("Baggage-c", "4");
+        assertEquals(keys("baggage-a", "baggage-b"), prefixKeys(new KeyedTextMapExtractAdapter(headers), "baggage-"));
+    }
+
+    @Test
+    public void testPrefixIteratorCaseInsensitive() {
+        Map<String, String> headers = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+        headers.put("baggage-b", "2");
+        headers.put("Baggage-A", "1");
+        headers.put("accept", "*/*");
+        headers.put("BAGGAGF", "3");
+        KeyedTextMapExtractAdapter extractAdapter = new KeyedTextMapExtractAdapter(headers);
+        assertEquals(keys("Baggage-A", "baggage-b"), prefixKeys(extractAdapter, "baggage-"));
+        assertEquals("*/*", extractAdapter.get("Accept"));
+    }
+
+    private static List<String> prefixKeys(KeyedTextMapExtract carrier, String prefix) {
+        List<String> keys = new ArrayList<String>();
+        Iterator<Entry<String, String>> iterator = carrier.prefixIterator(prefix);
+        while (iterator.hasNext()) {
+            keys.add(iterator.next().getKey());
+        }
+        return keys;
+    }
+
+    private static List<String> keys(String... keys) {
+        List<String> list = new ArrayList<String>();
+        for (String key : keys) {
+            list.add(key);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.benchmarks;
+
+import io.opentracing.SpanContext;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMapAdapter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures B3 extraction among {@code headers} unrelated, mixed case headers, from the {@code X-B3-*} headers
+ * ({@code extractMulti}) and the single {@code b3} header ({@code extractSingle}), against lowercasing a copy of the
+ * headers before looking them up ({@code lowercaseCopy}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class B3PropagationBenchmark {
+    @Param({"10", "50"})
+    public int headers;
+
+    private MockTracer tracer;
+    private Map<String, String> multiHeaders;
+    private TextMapAdapter multiCarrier;
+    private TextMapAdapter singleCarrier;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracer = new MockTracer(MockTracer.Propagator.B3_MULTI);
+        multiHeaders = headers(headers);
+        multiHeaders.put("X-B3-TraceId", "463ac35c9f6413ad48485a3953bb6124");
+        multiHeaders.put("x-b3-spanid", "a2fb4a1d1a96d312");
+        multiHeaders.put("X-B3-SAMPLED", "1");
+        multiCarrier = new TextMapAdapter(multiHeaders);
+
+        Map<String, String> singleHeaders = headers(headers);
+        singleHeaders.put("B3", "463ac35c9f6413ad48485a3953bb6124-a2fb4a1d1a96d312-1");
+        singleCarrier = new TextMapAdapter(singleHeaders);
+    }
+
+    private static Map<String, String> headers(int count) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            headers.put((i % 2 == 0 ? "X-Header-" : "x-header-") + i, "value-" + i);
+        }
+        return headers;
+    }
+
+    @Benchmark
+    public SpanContext extractMulti() {
+        return tracer.extract(Format.Builtin.HTTP_HEADERS, multiCarrier);
+    }
+
+    @Benchmark
+    public SpanContext extractSingle() {
+        return tracer.extract(Format.Builtin.HTTP_HEADERS, singleCarrier);
+    }
+
+    @Benchmark
+    public SpanContext lowercaseCopy() {
+        Map<String, String> lowercase = new HashMap<>(multiHeaders.size() * 2);
+        for (Map.Entry<String, String> entry : multiHeaders.entrySet()) {
+            lowercase.put(entry.getKey().toLowerCase(Locale.ROOT), entry.getValue());
+        }
+        Map<String, String> canonical = new HashMap<>();
+        canonical.put("X-B3-TraceId", lowercase.get("x-b3-traceid"));
+        canonical.put("X-B3-SpanId", lowercase.get("x-b3-spanid"));
+        return tracer.extract(Format.Builtin.HTTP_HEADERS, new TextMapAdapter(canonical));
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.benchmarks;
+
+import io.opentracing.Span;
+import io.opentracing.mock.MockTracer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures what {@link MockTracer} baggage costs: starting a child of a span carrying {@code items} baggage items,
+ * and adding one more item. Run with {@code -prof gc} to see the allocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BaggageBenchmark {
+    @Param({"0", "4", "32"})
+    public int items;
+
+    private MockTracer tracer;
+    private Span parent;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracer = new MockTracer();
+        parent = tracer.buildSpan("parent").start();
+        for (int i = 0; i < items; i++) {
+            parent.setBaggageItem("key" + i, "value" + i);
+        }
+    }
+
+    @Benchmark
+    public Span startChild() {
+        return tracer.buildSpan("child").asChildOf(parent).start();
+    }
+
+    @Benchmark
+    public Span setBaggageItem() {
+        return tracer.buildSpan("child").asChildOf(parent).start().setBaggageItem("extra", "value");
+    }
+}
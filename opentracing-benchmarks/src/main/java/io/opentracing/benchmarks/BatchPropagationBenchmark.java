@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.benchmarks;
+
+import io.opentracing.SpanContext;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.propagation.BinaryAdapters;
+import io.opentracing.propagation.BinaryBatch;
+import io.opentracing.propagation.Format;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures propagating the contexts of a batch of {@code records} messages with {@link BinaryBatch}, against a
+ * buffer and carrier per record, and extracting the contexts of every record or of 1 record in 100 (as a sampling
+ * consumer would).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchPropagationBenchmark {
+    @Param({"100", "10000"})
+    public int records;
+
+    private MockTracer tracer;
+    private List<SpanContext> contexts;
+    private ByteBuffer batch;
+    private ByteBuffer[] perRecord;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracer = new MockTracer(MockTracer.Propagator.BINARY);
+        contexts = new ArrayList<>(records);
+        perRecord = new ByteBuffer[records];
+        for (int i = 0; i < records; i++) {
+            SpanContext context = tracer.buildSpan("produce").start().context();
+            contexts.add(context);
+            perRecord[i] = ByteBuffer.allocate(64);
+            tracer.inject(context, Format.Builtin.BINARY_INJECT, BinaryAdapters.injectionCarrier(perRecord[i]));
+            perRecord[i].flip();
+        }
+        batch = BinaryBatch.inject(tracer, contexts);
+    }
+
+    @Benchmark
+    public ByteBuffer injectBatch() {
+        return BinaryBatch.inject(tracer, contexts);
+    }
+
+    @Benchmark
+    public ByteBuffer[] injectPerRecord() {
+        ByteBuffer[] buffers = new ByteBuffer[records];
+        for (int i = 0; i < records; i++) {
+            buffers[i] = ByteBuffer.allocate(64);
+            tracer.inject(contexts.get(i), Format.Builtin.BINARY_INJECT, BinaryAdapters.injectionCarrier(buffers[i]));
+        }
+        return buffers;
+    }
+
+    @Benchmark
+    public SpanContext extractBatchSampled() {
+        BinaryBatch received = BinaryBatch.wrap(batch);
+        SpanContext last = null;
+        for (int i = 0; i < received.size(); i += 100) {
+            last = received.extract(tracer, i);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public SpanContext extractBatchAll() {
+        BinaryBatch received = BinaryBatch.wrap(batch);
+        SpanContext last = null;
+        for (int i = 0; i < received.size(); i++) {
+            last = received.extract(tracer, i);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public SpanContext extractPerRecord() {
+        SpanContext last = null;
+        for (ByteBuffer buffer : perRecord) {
+            last = tracer.extract(Format.Builtin.BINARY_EXTRACT, BinaryAdapters.extractionCarrier(buffer.duplicate()));
+        }
+        return last;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.benchmarks;
+
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.propagation.BinaryAdapters;
+import io.opentracing.propagation.BinaryBufferPool;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.PooledBinaryInject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link MockTracer.Propagator#BINARY} injection and extraction, against the Java serialization based
+ * layout it replaced ({@code legacyInject}/{@code legacyExtract}), with {@code items} baggage items.
+ * {@code pooledInject} injects into direct buffers taken from a {@link BinaryBufferPool} and released right away.
+ * As baggage items are decoded lazily, {@code extractAndReadBaggage} also reads one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryPropagationBenchmark {
+    @Param({"0", "4"})
+    public int items;
+
+    private MockTracer tracer;
+    private MockSpan.MockContext context;
+    private ByteBuffer injectBuffer;
+    private ByteBuffer encoded;
+    private ByteBuffer legacyEncoded;
+    private PooledBinaryInject pooledCarrier;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracer = new MockTracer(MockTracer.Propagator.BINARY);
+        Span span = tracer.buildSpan("binary").start();
+        for (int i = 0; i < items; i++) {
+            span.setBaggageItem("key" + i, "value" + i);
+        }
+        context = (MockSpan.MockContext) span.context();
+
+        injectBuffer = ByteBuffer.allocate(1024);
+        encoded = ByteBuffer.allocate(1024);
+        tracer.inject(context, Format.Builtin.BINARY_INJECT, BinaryAdapters.injectionCarrier(encoded));
+        encoded.flip();
+        legacyEncoded = ByteBuffer.allocate(1024);
+        legacyInject(context, legacyEncoded);
+        legacyEncoded.flip();
+        pooledCarrier = new BinaryBufferPool().injectionCarrier();
+    }
+
+    @Benchmark
+    public ByteBuffer inject() {
+        injectBuffer.clear();
+        tracer.inject(context, Format.Builtin.BINARY_INJECT, BinaryAdapters.injectionCarrier(injectBuffer));
+        return injectBuffer;
+    }
+
+    @Benchmark
+    public int pooledInject() {
+        tracer.inject(context, Format.Builtin.BINARY_INJECT, pooledCarrier);
+        int length = pooledCarrier.buffer().position();
+        pooledCarrier.release();
+        return length;
+    }
+
+    @Benchmark
+    public SpanContext extract() {
+        return tracer.extract(Format.Builtin.BINARY_EXTRACT, BinaryAdapters.extractionCarrier(encoded.duplicate()));
+    }
+
+    @Benchmark
+    public String extractAndReadBaggage() {
+        SpanContext extracted = tracer.extract(Format.Builtin.BINARY_EXTRACT,
+                BinaryAdapters.extractionCarrier(encoded.duplicate()));
+        return ((MockSpan.MockContext) extracted).getBaggageItem("key0");
+    }
+
+    @Benchmark
+    public ByteBuffer legacyInject() {
+        injectBuffer.clear();
+        legacyInject(context, injectBuffer);
+        return injectBuffer;
+    }
+
+    @Benchmark
+    public SpanContext legacyExtract() {
+        return legacyExtract(legacyEncoded.duplicate());
+    }
+
+    private static void legacyInject(MockSpan.MockContext ctx, ByteBuffer buffer) {
+        try {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            ObjectOutputStream objStream = new ObjectOutputStream(stream);
+            objStream.writeLong(ctx.spanId());
+            objStream.writeLong(ctx.traceId());
+            for (Map.Entry<String, String> entry : ctx.baggageItems()) {
+                objStream.writeUTF(entry.getKey());
+                objStream.writeUTF(entry.getValue());
+            }
+            objStream.flush();
+            buffer.put(stream.toByteArray());
+            objStream.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static MockSpan.MockContext legacyExtract(ByteBuffer buffer) {
+        try {
+            byte[] buff = new byte[buffer.remaining()];
+            buffer.get(buff);
+            ObjectInputStream objStream = new ObjectInputStream(new ByteArrayInputStream(buff));
+            long spanId = objStream.readLong();
+            long traceId = objStream.readLong();
+            Map<String, String> baggage = new HashMap<>();
+            while (objStream.available() > 0) {
+                baggage.put(objStream.readUTF(), objStream.readUTF());
+            }
+            objStream.close();
+            return new MockSpan.MockContext(traceId, spanId, baggage);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.benchmarks;
+
+import io.opentracing.util.CoarseClock;
+import io.opentracing.util.MillisClock;
+import io.opentracing.util.NanoClock;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures what reading each {@link io.opentracing.util.Clock} costs, i.e. what a tracer pays twice per span for
+ * its timestamps.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClockBenchmark {
+    private MillisClock millisClock;
+    private NanoClock nanoClock;
+    private CoarseClock coarseClock;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        millisClock = new MillisClock();
+        nanoClock = new NanoClock();
+        coarseClock = new CoarseClock();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        coarseClock.close();
+    }
+
+    @Benchmark
+    public long millisClock() {
+        return millisClock.nowMicros();
+    }
+
+    @Benchmark
+    public long nanoClock() {
+        return nanoClock.nowMicros();
+    }
+
+    @Benchmark
+    public long coarseClock() {
+        return coarseClock.nowMicros();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.benchmarks;
+
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.concurrent.TracedCompletionStage;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.util.ThreadLocalScopeManager;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a chain of 1 or 10 {@code thenApply} stages over a completed future, run in the thread holding the span,
+ * through a {@link TracedCompletionStage}, against callbacks each activating the span they captured, and against
+ * no propagation at all.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(org.openjdk.jmh.annotations.Scope.Thread)
+public class CompletionStageBenchmark {
+    @Param({"1", "10"})
+    public int stages;
+
+    private Tracer tracer;
+    private Span span;
+    private Scope scope;
+    private final CompletableFuture<Integer> completed = CompletableFuture.completedFuture(0);
+    private final Function<Integer, Integer> increment = value -> value + 1;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracer = new MockTracer(new ThreadLocalScopeManager(), MockTracer.Propagator.TEXT_MAP);
+        span = tracer.buildSpan("parent").start();
+    }
+
+    @Setup(Level.Iteration)
+    public void activate() {
+        scope = tracer.activateSpan(span);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deactivate() {
+        scope.close();
+    }
+
+    @Benchmark
+    public CompletionStage<Integer> untraced() {
+        CompletionStage<Integer> stage = completed;
+        for (int i = 0; i < stages; i++) {
+            stage = stage.thenApply(increment);
+        }
+        return stage;
+    }
+
+    @Benchmark
+    public CompletionStage<Integer> traced() {
+        CompletionStage<Integer> stage = new TracedCompletionStage<>(completed, tracer);
+        for (int i = 0; i < stages; i++) {
+            stage = stage.thenApply(increment);
+        }
+        return stage;
+    }
+
+    @Benchmark
+    public CompletionStage<Integer> activatedPerStage() {
+        CompletionStage<Integer> stage = completed;
+        for (int i = 0; i < stages; i++) {
+            Span captured = tracer.activeSpan();
+            stage = stage.thenApply(value -> {
+                try (Scope scope = tracer.activateSpan(captured)) {
+                    return increment.apply(value);
+                }
+            });
+        }
+        return stage;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.benchmarks;
+
+import io.opentracing.SpanContext;
+import io.opentracing.mock.CachingPropagator;
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMapAdapter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures W3C Trace Context extraction through a {@link CachingPropagator} of 1024 contexts, from 100 or 10000
+ * distinct {@code traceparent} and {@code tracestate} headers taken in turn, against extracting without a cache.
+ * Four threads share the cache, so that misses contend for its stripes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ExtractionCacheBenchmark {
+    @Param({"100", "10000"})
+    public int distinctHeaders;
+
+    private MockTracer tracer;
+    private MockTracer cachingTracer;
+    private TextMapAdapter[] carriers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracer = new MockTracer(MockTracer.Propagator.TRACE_CONTEXT);
+        cachingTracer = new MockTracer(
+                new CachingPropagator(MockTracer.Propagator.TRACE_CONTEXT, 1024, "traceparent", "tracestate"));
+        carriers = new TextMapAdapter[distinctHeaders];
+        for (int i = 0; i < distinctHeaders; i++) {
+            MockSpan span = tracer.buildSpan("request").start();
+            Map<String, String> headers = new HashMap<>();
+            tracer.inject(span.context(), Format.Builtin.HTTP_HEADERS, new TextMapAdapter(headers));
+            headers.put("tracestate", "congo=t61rcWkgMzE");
+            headers.put("accept", "application/json");
+            headers.put("user-agent", "benchmark");
+            carriers[i] = new TextMapAdapter(headers);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public SpanContext uncached(Cursor cursor) {
+        return tracer.extract(Format.Builtin.HTTP_HEADERS, next(cursor));
+    }
+
+    @Benchmark
+    public SpanContext cached(Cursor cursor) {
+        return cachingTracer.extract(Format.Builtin.HTTP_HEADERS, next(cursor));
+    }
+
+    private TextMapAdapter next(Cursor cursor) {
+        int next = cursor.next;
+        cursor.next = next + 1 == carriers.length ? 0 : next + 1;
+        return carriers[next];
+    }
+}
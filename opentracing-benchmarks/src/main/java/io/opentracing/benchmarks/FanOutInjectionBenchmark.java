@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.benchmarks;
+
+import io.opentracing.Span;
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.propagation.BinaryAdapters;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMapAdapter;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures injecting one context, with 4 baggage items, into the carriers of {@code fanOut} downstream calls, with
+ * {@link MockTracer.Propagator#TEXT_MAP} and {@link MockTracer.Propagator#BINARY}, against formatting the TextMap
+ * entries on every injection ({@code uncachedTextMap}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FanOutInjectionBenchmark {
+    @Param({"1", "10", "100"})
+    public int fanOut;
+
+    private MockTracer textMapTracer;
+    private MockTracer binaryTracer;
+    private MockSpan.MockContext context;
+    private Map<String, String> headers;
+    private TextMapAdapter textMap;
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        textMapTracer = new MockTracer(MockTracer.Propagator.TEXT_MAP);
+        binaryTracer = new MockTracer(MockTracer.Propagator.BINARY);
+        Span span = textMapTracer.buildSpan("fan-out").start();
+        for (int i = 0; i < 4; i++) {
+            span.setBaggageItem("key" + i, "value" + i);
+        }
+        context = (MockSpan.MockContext) span.context();
+        headers = new HashMap<>();
+        textMap = new TextMapAdapter(headers);
+        buffer = ByteBuffer.allocate(1024);
+    }
+
+    @Benchmark
+    public Map<String, String> textMap() {
+        for (int i = 0; i < fanOut; i++) {
+            headers.clear();
+            textMapTracer.inject(context, Format.Builtin.TEXT_MAP_INJECT, textMap);
+        }
+        return headers;
+    }
+
+    @Benchmark
+    public ByteBuffer binary() {
+        for (int i = 0; i < fanOut; i++) {
+            buffer.clear();
+            binaryTracer.inject(context, Format.Builtin.BINARY_INJECT, BinaryAdapters.injectionCarrier(buffer));
+        }
+        return buffer;
+    }
+
+    @Benchmark
+    public Map<String, String> uncachedTextMap() {
+        for (int i = 0; i < fanOut; i++) {
+            headers.clear();
+            for (Map.Entry<String, String> entry : context.baggageItems()) {
+                headers.put("baggage-" + entry.getKey(), entry.getValue());
+            }
+            headers.put("spanid", String.valueOf(context.spanId()));
+            headers.put("traceid", String.valueOf(context.traceId()));
+        }
+        return headers;
+    }
+}
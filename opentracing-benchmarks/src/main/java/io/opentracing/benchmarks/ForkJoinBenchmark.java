@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.benchmarks;
+
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.concurrent.TracedForkJoinPool;
+import io.opentracing.concurrent.TracedRecursiveTask;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.util.StackScopeManager;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a recursive fan-out of {@value #TASKS} fork/join tasks on 4 workers, with {@link TracedRecursiveTask}s
+ * carrying the active span through a {@link TracedForkJoinPool}, against plain {@link RecursiveTask}s. Times are
+ * reported per task, so the difference between both is the overhead of propagating the span to one fork.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+public class ForkJoinBenchmark {
+    private static final int LEAVES = 4096;
+    static final int TASKS = 2 * LEAVES - 1;
+
+    private Tracer tracer;
+    private ForkJoinPool pool;
+    private ForkJoinPool tracedPool;
+    private Span span;
+    private Scope scope;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracer = new MockTracer(new StackScopeManager(), MockTracer.Propagator.TEXT_MAP);
+        pool = new ForkJoinPool(4);
+        tracedPool = new TracedForkJoinPool(4, tracer);
+        span = tracer.buildSpan("batch").start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+        tracedPool.shutdown();
+    }
+
+    @Setup(Level.Iteration)
+    public void activate() {
+        scope = tracer.activateSpan(span);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deactivate() {
+        scope.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public long plain() {
+        return pool.invoke(new PlainSum(0, LEAVES));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public long traced() {
+        return tracedPool.invoke(new TracedSum(tracer, 0, LEAVES));
+    }
+
+    static final class PlainSum extends RecursiveTask<Long> {
+        private final int from;
+        private final int to;
+
+        PlainSum(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from == 1) {
+                return (long) from;
+            }
+            int middle = (from + to) >>> 1;
+            PlainSum left = new PlainSum(from, middle);
+            left.fork();
+            return new PlainSum(middle, to).compute() + left.join();
+        }
+    }
+
+    static final class TracedSum extends TracedRecursiveTask<Long> {
+        private final Tracer tracer;
+        private final int from;
+        private final int to;
+
+        TracedSum(Tracer tracer, int from, int to) {
+            super(tracer);
+            this.tracer = tracer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long computeTraced() {
+            if (to - from == 1) {
+                return (long) from;
+            }
+            int middle = (from + to) >>> 1;
+            TracedSum left = new TracedSum(tracer, from, middle);
+            left.fork();
+            return new TracedSum(tracer, middle, to).compute() + left.join();
+        }
+    }
+}
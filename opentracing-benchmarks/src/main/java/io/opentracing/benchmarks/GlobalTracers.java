@@ -0,0 +1,56 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.benchmarks;
+
+import io.opentracing.Tracer;
+import io.opentracing.noop.NoopTracerFactory;
+import io.opentracing.util.GlobalTracer;
+import java.lang.reflect.Field;
+
+/**
+ * Swaps the {@link GlobalTracer} delegate between benchmark trials, which its register-once semantics do not allow.
+ */
+final class GlobalTracers {
+
+    private GlobalTracers() {
+    }
+
+    /**
+     * Registers the given tracer as the GlobalTracer's delegate, whether one is registered already or not.
+     */
+    static void setUnconditionally(Tracer tracer) {
+        set(tracer, true);
+    }
+
+    /**
+     * Resets the {@link GlobalTracer} to its initial, unregistered state.
+     */
+    static void reset() {
+        set(NoopTracerFactory.create(), false);
+    }
+
+    private static void set(Tracer tracer, boolean registered) {
+        try {
+            Field tracerField = GlobalTracer.class.getDeclaredField("tracer");
+            tracerField.setAccessible(true);
+            tracerField.set(null, tracer);
+
+            Field isRegisteredField = GlobalTracer.class.getDeclaredField("isRegistered");
+            isRegisteredField.setAccessible(true);
+            isRegisteredField.set(null, registered);
+        } catch (Exception e) {
+            throw new IllegalStateException("Error reflecting GlobalTracer.tracer: " + e.getMessage(), e);
+        }
+    }
+}
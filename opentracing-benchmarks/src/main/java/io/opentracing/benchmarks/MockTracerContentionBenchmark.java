@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.benchmarks;
+
+import io.opentracing.Span;
+import io.opentracing.mock.MockTracer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how {@link MockTracer} scales when many threads finish spans at the same time.
+ *
+ * <p>
+ * The aggregate throughput of {@code finish_32threads} should be well above that of {@code finish_1thread}
+ * on a multi-core machine; a flat line means finishing spans is serialized again.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class MockTracerContentionBenchmark {
+    private MockTracer tracer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracer = new MockTracer();
+    }
+
+    @TearDown(Level.Iteration)
+    public void resetFinishedSpans() {
+        tracer.reset();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Span finish_1thread() {
+        return startFinish();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Span finish_8threads() {
+        return startFinish();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Span finish_32threads() {
+        return startFinish();
+    }
+
+    private Span startFinish() {
+        Span span = tracer.buildSpan("contended").start();
+        span.finish();
+        return span;
+    }
+}
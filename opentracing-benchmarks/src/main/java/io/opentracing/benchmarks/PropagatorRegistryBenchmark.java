@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.benchmarks;
+
+import io.opentracing.SpanContext;
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.mock.PropagatorRegistry;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMapAdapter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures injecting both W3C and B3 headers, and extracting either, through a {@link PropagatorRegistry}, against
+ * a chain of wrapper Propagators that each check the format before delegating ({@code chained*}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PropagatorRegistryBenchmark {
+    private MockTracer registryTracer;
+    private MockTracer chainedTracer;
+    private MockSpan.MockContext context;
+    private Map<String, String> headers;
+    private TextMapAdapter carrier;
+    private TextMapAdapter b3Carrier;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        registryTracer = new MockTracer(new PropagatorRegistry.Builder()
+                .register(Format.Builtin.TEXT_MAP, MockTracer.Propagator.TEXT_MAP)
+                .register(Format.Builtin.BINARY, MockTracer.Propagator.BINARY)
+                .register(Format.Builtin.HTTP_HEADERS, MockTracer.Propagator.TRACE_CONTEXT,
+                        MockTracer.Propagator.B3_MULTI)
+                .build());
+        MockTracer.Propagator chain = new Chained(Format.Builtin.TEXT_MAP, MockTracer.Propagator.TEXT_MAP,
+                new Chained(Format.Builtin.BINARY, MockTracer.Propagator.BINARY,
+                        new Chained(Format.Builtin.HTTP_HEADERS, MockTracer.Propagator.TRACE_CONTEXT,
+                                new Chained(Format.Builtin.HTTP_HEADERS, MockTracer.Propagator.B3_MULTI, null))));
+        chainedTracer = new MockTracer(chain);
+
+        context = registryTracer.buildSpan("gateway").start().context();
+        headers = new HashMap<>();
+        carrier = new TextMapAdapter(headers);
+        Map<String, String> b3Headers = new HashMap<>();
+        MockTracer.Propagator.B3_MULTI.inject(context, Format.Builtin.HTTP_HEADERS, new TextMapAdapter(b3Headers));
+        b3Carrier = new TextMapAdapter(b3Headers);
+    }
+
+    @Benchmark
+    public Map<String, String> inject() {
+        headers.clear();
+        registryTracer.inject(context, Format.Builtin.HTTP_HEADERS, carrier);
+        return headers;
+    }
+
+    @Benchmark
+    public Map<String, String> chainedInject() {
+        headers.clear();
+        chainedTracer.inject(context, Format.Builtin.HTTP_HEADERS, carrier);
+        return headers;
+    }
+
+    @Benchmark
+    public SpanContext extract() {
+        return registryTracer.extract(Format.Builtin.HTTP_HEADERS, b3Carrier);
+    }
+
+    @Benchmark
+    public SpanContext chainedExtract() {
+        return chainedTracer.extract(Format.Builtin.HTTP_HEADERS, b3Carrier);
+    }
+
+    /**
+     * Handles one format, and hands everything on to the next wrapper, as gateways chain them today.
+     */
+    static final class Chained implements MockTracer.Propagator {
+        private final Format<?> format;
+        private final MockTracer.Propagator propagator;
+        private final MockTracer.Propagator next;
+
+        Chained(Format<?> format, MockTracer.Propagator propagator, MockTracer.Propagator next) {
+            this.format = format;
+            this.propagator = propagator;
+            this.next = next;
+        }
+
+        @Override
+        public <C> void inject(MockSpan.MockContext ctx, Format<C> format, C carrier) {
+            if (this.format.equals(format)) {
+                propagator.inject(ctx, format, carrier);
+            }
+            if (next != null) {
+                next.inject(ctx, format, carrier);
+            }
+        }
+
+        @Override
+        public <C> MockSpan.MockContext extract(Format<C> format, C carrier) {
+            MockSpan.MockContext context = this.format.equals(format) ? propagator.extract(format, carrier) : null;
+            return context != null || next == null ? context : next.extract(format, carrier);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.benchmarks;
+
+import io.opentracing.Scope;
+import io.opentracing.ScopeManager;
+import io.opentracing.Span;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.util.StackScopeManager;
+import io.opentracing.util.ThreadLocalScopeManager;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures activating 1 or 8 nested spans and closing their scopes with a {@link StackScopeManager}, against a
+ * {@link ThreadLocalScopeManager} allocating a scope per activation. Run it with {@code -prof gc}: the
+ * {@code gc.alloc.rate.norm} of the {@code STACK} manager is expected to be 0 bytes per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(org.openjdk.jmh.annotations.Scope.Thread)
+public class ScopeManagerBenchmark {
+    public enum Kind {
+        THREAD_LOCAL,
+        STACK
+    }
+
+    @Param({"THREAD_LOCAL", "STACK"})
+    public Kind kind;
+
+    @Param({"1", "8"})
+    public int depth;
+
+    private ScopeManager scopeManager;
+    private Span[] spans;
+    private Scope[] scopes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        scopeManager = kind == Kind.STACK ? new StackScopeManager() : new ThreadLocalScopeManager();
+        MockTracer tracer = new MockTracer();
+        spans = new Span[depth];
+        for (int i = 0; i < depth; i++) {
+            spans[i] = tracer.buildSpan("nested").start();
+        }
+        scopes = new Scope[depth];
+    }
+
+    @Benchmark
+    public Span activateNested() {
+        for (int i = 0; i < depth; i++) {
+            scopes[i] = scopeManager.activate(spans[i]);
+        }
+        Span active = scopeManager.activeSpan();
+        for (int i = depth - 1; i >= 0; i--) {
+            scopes[i].close();
+        }
+        return active;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.benchmarks;
+
+import io.opentracing.Span;
+import io.opentracing.mock.MockTracer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how starting {@link MockTracer} spans scales with the number of threads, for each
+ * {@link MockTracer.IdGenerator}.
+ *
+ * <p>
+ * Spans are started but never finished, so that only span creation (and id generation) is measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class SpanIdBenchmark {
+    @Param({"SEQUENTIAL", "THREAD_BLOCKS", "RANDOM_64", "RANDOM_128"})
+    public String idGenerator;
+
+    private MockTracer tracer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Object ids = MockTracer.IdGenerator.class.getField(idGenerator).get(null);
+        tracer = new MockTracer.Builder().idGenerator((MockTracer.IdGenerator) ids).build();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Span start_1thread() {
+        return tracer.buildSpan("ids").ignoreActiveSpan().start();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Span start_8threads() {
+        return tracer.buildSpan("ids").ignoreActiveSpan().start();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Span start_32threads() {
+        return tracer.buildSpan("ids").ignoreActiveSpan().start();
+    }
+}
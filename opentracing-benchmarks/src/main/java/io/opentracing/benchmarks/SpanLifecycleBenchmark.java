@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.benchmarks;
+
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.tag.Tags;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures each step of the span lifecycle as seen from instrumentation code on the request path:
+ * {@link Tracer#buildSpan(String)}, {@link Tracer.SpanBuilder#withTag}, {@link Tracer.SpanBuilder#start()},
+ * {@link Span#finish()} and {@link Tracer#activateSpan(Span)}/{@link Scope#close()}.
+ *
+ * <p>
+ * Throughput and sampled latency (with percentiles) are both reported; add {@code -prof gc} on the
+ * command line to get allocation rates per operation.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SpanLifecycleBenchmark {
+    private static final String OPERATION_NAME = "benchmark-operation";
+
+    /**
+     * A started span owned by a single benchmark thread, used to measure activation in isolation.
+     */
+    @State(org.openjdk.jmh.annotations.Scope.Thread)
+    public static class StartedSpan {
+        Span span;
+
+        @Setup(Level.Trial)
+        public void setUp(TracerState state) {
+            span = state.tracer.buildSpan(OPERATION_NAME).start();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            span.finish();
+        }
+    }
+
+    @Benchmark
+    public Tracer.SpanBuilder buildSpan(TracerState state) {
+        return state.tracer.buildSpan(OPERATION_NAME);
+    }
+
+    @Benchmark
+    public Tracer.SpanBuilder buildSpanWithTags(TracerState state) {
+        return state.tracer.buildSpan(OPERATION_NAME)
+                .withTag(Tags.COMPONENT.getKey(), "benchmark")
+                .withTag(Tags.ERROR.getKey(), false)
+                .withTag(Tags.HTTP_STATUS.getKey(), 200);
+    }
+
+    @Benchmark
+    public Span start(TracerState state) {
+        return state.tracer.buildSpan(OPERATION_NAME).start();
+    }
+
+    @Benchmark
+    public Span startFinish(TracerState state) {
+        Span span = state.tracer.buildSpan(OPERATION_NAME).start();
+        span.finish();
+        return span;
+    }
+
+    @Benchmark
+    public Scope activateClose(TracerState state, StartedSpan started) {
+        Scope scope = state.tracer.activateSpan(started.span);
+        scope.close();
+        return scope;
+    }
+
+    @Benchmark
+    public Span fullLifecycle(TracerState state) {
+        Span span = state.tracer.buildSpan(OPERATION_NAME)
+                .withTag(Tags.COMPONENT.getKey(), "benchmark")
+                .start();
+        Scope scope = state.tracer.activateSpan(span);
+        try {
+            span.setTag(Tags.HTTP_STATUS.getKey(), 200);
+        } finally {
+            scope.close();
+            span.finish();
+        }
+        return span;
+    }
+}
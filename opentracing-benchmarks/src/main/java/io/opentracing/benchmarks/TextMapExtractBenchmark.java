@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.benchmarks;
+
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.KeyedTextMapExtractAdapter;
+import io.opentracing.propagation.TextMapAdapter;
+import io.opentracing.propagation.TextMapExtract;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link MockTracer.Propagator#TEXT_MAP} extraction from {@code headers} unrelated headers plus the injected
+ * context with one baggage item: through the keyed lookups of {@link KeyedTextMapExtractAdapter} over a HashMap and
+ * over a case-insensitive TreeMap, and through plain iteration ({@code iterated}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextMapExtractBenchmark {
+    @Param({"10", "100"})
+    public int headers;
+
+    private MockTracer tracer;
+    private KeyedTextMapExtractAdapter hashMapCarrier;
+    private KeyedTextMapExtractAdapter sortedMapCarrier;
+    private TextMapExtract iteratedCarrier;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracer = new MockTracer(MockTracer.Propagator.TEXT_MAP);
+        Span span = tracer.buildSpan("extract").start();
+        span.setBaggageItem("user", "alice");
+
+        final Map<String, String> hashMap = new HashMap<>();
+        for (int i = 0; i < headers; i++) {
+            hashMap.put("x-header-" + i, "value-" + i);
+        }
+        tracer.inject(span.context(), Format.Builtin.HTTP_HEADERS, new TextMapAdapter(hashMap));
+        Map<String, String> sortedMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        sortedMap.putAll(hashMap);
+
+        hashMapCarrier = new KeyedTextMapExtractAdapter(hashMap);
+        sortedMapCarrier = new KeyedTextMapExtractAdapter(sortedMap);
+        iteratedCarrier = new TextMapExtract() {
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                return hashMap.entrySet().iterator();
+            }
+        };
+    }
+
+    @Benchmark
+    public SpanContext keyedHashMap() {
+        return tracer.extract(Format.Builtin.TEXT_MAP_EXTRACT, hashMapCarrier);
+    }
+
+    @Benchmark
+    public SpanContext keyedSortedMap() {
+        return tracer.extract(Format.Builtin.TEXT_MAP_EXTRACT, sortedMapCarrier);
+    }
+
+    @Benchmark
+    public SpanContext iterated() {
+        return tracer.extract(Format.Builtin.TEXT_MAP_EXTRACT, iteratedCarrier);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.benchmarks;
+
+import io.opentracing.SpanContext;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMapAdapter;
+import io.opentracing.util.TraceParent;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing and formatting the W3C {@code traceparent} header with {@link TraceParent}, against splitting it
+ * into Strings ({@code splitParse}), and a full {@link MockTracer.Propagator#TRACE_CONTEXT} extraction.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TraceContextBenchmark {
+    private static final String HEADER = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    private final TraceParent traceParent = new TraceParent();
+    private MockTracer tracer;
+    private TextMapAdapter carrier;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracer = new MockTracer(MockTracer.Propagator.TRACE_CONTEXT);
+        Map<String, String> headers = new HashMap<>();
+        headers.put(TraceParent.HEADER, HEADER);
+        headers.put("tracestate", "congo=t61rcWkgMzE");
+        carrier = new TextMapAdapter(headers);
+    }
+
+    @Benchmark
+    public long parse() {
+        traceParent.parse(HEADER);
+        return traceParent.traceId() ^ traceParent.spanId();
+    }
+
+    @Benchmark
+    public long splitParse() {
+        String[] parts = HEADER.split("-");
+        if (parts.length != 4 || parts[1].length() != 32 || parts[2].length() != 16) {
+            throw new IllegalArgumentException();
+        }
+        long traceId = Long.parseUnsignedLong(parts[1].substring(16), 16);
+        long spanId = Long.parseUnsignedLong(parts[2], 16);
+        return traceId ^ spanId;
+    }
+
+    @Benchmark
+    public String format() {
+        return TraceParent.format(0x4bf92f3577b34da6L, 0xa3ce929d0e0e4736L, 0x00f067aa0ba902b7L,
+                TraceParent.FLAG_SAMPLED);
+    }
+
+    @Benchmark
+    public SpanContext extract() {
+        return tracer.extract(Format.Builtin.HTTP_HEADERS, carrier);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.benchmarks;
+
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.util.StackScopeManager;
+import io.opentracing.util.TracedExecutorService;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures executing a task through a {@link TracedExecutorService}, with and without an active span, against
+ * capturing and activating the span by hand in an anonymous Runnable. Tasks run inline in the calling thread, so
+ * that only the propagation is measured; add {@code -prof gc} to compare allocations per task.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(org.openjdk.jmh.annotations.Scope.Thread)
+public class TracedExecutorBenchmark {
+    private Tracer tracer;
+    private ExecutorService direct;
+    private ExecutorService traced;
+    private Span span;
+    private Scope scope;
+    private final Runnable task = new Runnable() {
+        @Override
+        public void run() {
+            sink = tracer.activeSpan();
+        }
+    };
+    private Object sink;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracer = new MockTracer(new StackScopeManager(), MockTracer.Propagator.TEXT_MAP);
+        direct = new DirectExecutorService();
+        traced = new TracedExecutorService(direct, tracer);
+        span = tracer.buildSpan("parent").start();
+    }
+
+    @Setup(Level.Iteration)
+    public void activate() {
+        scope = tracer.activateSpan(span);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deactivate() {
+        scope.close();
+    }
+
+    @Benchmark
+    public Object traced() {
+        traced.execute(task);
+        return sink;
+    }
+
+    @Benchmark
+    public Object tracedNoActiveSpan() {
+        Scope none = tracer.activateSpan(null);
+        try {
+            traced.execute(task);
+        } finally {
+            none.close();
+        }
+        return sink;
+    }
+
+    @Benchmark
+    public Object handRolled() {
+        final Span captured = tracer.activeSpan();
+        direct.execute(new Runnable() {
+            @Override
+            public void run() {
+                Scope scope = tracer.activateSpan(captured);
+                try {
+                    task.run();
+                } finally {
+                    scope.close();
+                }
+            }
+        });
+        return sink;
+    }
+
+    /**
+     * Runs the tasks in the calling thread.
+     */
+    static final class DirectExecutorService extends AbstractExecutorService {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.benchmarks;
+
+import io.opentracing.Tracer;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.noop.NoopTracerFactory;
+import io.opentracing.util.GlobalTracer;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The {@link Tracer} under benchmark, shared by all benchmark threads.
+ *
+ * <p>
+ * Every benchmark taking this state is run once per {@link Kind}, so that the cost of the
+ * noop, mock and global (delegating) tracers can be compared side by side.
+ */
+@State(Scope.Benchmark)
+public class TracerState {
+
+    public enum Kind {
+        NOOP,
+        MOCK,
+        GLOBAL_NOOP,
+        GLOBAL_MOCK
+    }
+
+    @Param
+    public Kind kind;
+
+    public Tracer tracer;
+
+    private MockTracer mockTracer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (kind) {
+            case NOOP:
+                tracer = NoopTracerFactory.create();
+                break;
+            case MOCK:
+                tracer = mockTracer = new MockTracer();
+                break;
+            case GLOBAL_NOOP:
+                GlobalTracers.setUnconditionally(NoopTracerFactory.create());
+                tracer = GlobalTracer.get();
+                break;
+            case GLOBAL_MOCK:
+                mockTracer = new MockTracer();
+                GlobalTracers.setUnconditionally(mockTracer);
+                tracer = GlobalTracer.get();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown tracer kind " + kind);
+        }
+    }
+
+    /**
+     * MockTracer retains every finished span, so drop them between iterations to keep the heap flat.
+     */
+    @TearDown(Level.Iteration)
+    public void resetFinishedSpans() {
+        if (mockTracer != null) {
+            mockTracer.reset();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        tracer.close();
+        GlobalTracers.reset();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.concurrent;
+
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * A Callable activating the span that was active when it was created, for the time it runs.
+ */
+final class TracedCallable<V> implements Callable<V> {
+    private final Callable<V> delegate;
+    private final Tracer tracer;
+    private final Span span;
+
+    private TracedCallable(Callable<V> delegate, Tracer tracer, Span span) {
+        this.delegate = delegate;
+        this.tracer = tracer;
+        this.span = span;
+    }
+
+    /**
+     * @return the task wrapped with the active span, or the task itself if no span is active
+     */
+    static <V> Callable<V> wrap(Callable<V> task, Tracer tracer) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        Span span = tracer.activeSpan();
+        return span == null ? task : new TracedCallable<V>(task, tracer, span);
+    }
+
+    /**
+     * @return the tasks wrapped with the active span, or the tasks themselves if no span is active
+     */
+    static <V> Collection<? extends Callable<V>> wrapAll(Collection<? extends Callable<V>> tasks, Tracer tracer) {
+        Span span = tracer.activeSpan();
+        if (span == null) {
+            return tasks;
+        }
+        List<Callable<V>> wrapped = new ArrayList<Callable<V>>(tasks.size());
+        for (Callable<V> task : tasks) {
+            if (task == null) {
+                throw new NullPointerException("task");
+            }
+            wrapped.add(new TracedCallable<V>(task, tracer, span));
+        }
+        return wrapped;
+    }
+
+    @Override
+    public V call() throws Exception {
+        Scope scope = tracer.activateSpan(span);
+        try {
+            return delegate.call();
+        } finally {
+            scope.close();
+        }
+    }
+}
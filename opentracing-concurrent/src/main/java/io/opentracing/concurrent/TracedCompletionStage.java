@@ -0,0 +1,304 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.concurrent;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A {@link CompletionStage} running all its callbacks, and those of the stages depending on it, with the span that
+ * was active when it was created, whichever thread completes the stages.
+ *
+ * <pre><code>
+ * try (Scope scope = tracer.activateSpan(span)) {
+ *     return new TracedCompletionStage&lt;&gt;(client.fetchAsync(request), tracer)
+ *             .thenApply(response -&gt; parse(response))    // runs with span active
+ *             .thenCompose(parsed -&gt; store(parsed));     // so does this one
+ * }
+ * </code></pre>
+ *
+ * <p>
+ * Each callback is wrapped once, and activates the span only if it is not already the active span of the thread
+ * running it, e.g. when the previous stage completed in the same thread and scope. Stages created while no span is
+ * active leave callbacks unwrapped. {@link #toCompletableFuture()} returns the undecorated future.
+ */
+public class TracedCompletionStage<T> implements CompletionStage<T> {
+    private final CompletionStage<T> delegate;
+    private final Tracer tracer;
+    private final Span span;
+
+    /**
+     * @param delegate the stage to decorate
+     * @param tracer the tracer whose active span is carried through the stages
+     */
+    public TracedCompletionStage(CompletionStage<T> delegate, Tracer tracer) {
+        this(delegate, tracer, tracer.activeSpan());
+    }
+
+    private TracedCompletionStage(CompletionStage<T> delegate, Tracer tracer, Span span) {
+        if (delegate == null) {
+            throw new NullPointerException("delegate");
+        }
+        this.delegate = delegate;
+        this.tracer = tracer;
+        this.span = span;
+    }
+
+    /**
+     * @return the span active in the callbacks, or null
+     */
+    public Span span() {
+        return span;
+    }
+
+    private <U> TracedCompletionStage<U> traced(CompletionStage<U> stage) {
+        return new TracedCompletionStage<U>(stage, tracer, span);
+    }
+
+    private <A, B> Function<A, B> wrap(Function<A, B> fn) {
+        return span == null ? fn : new TracedFunctions.TracedFunction<A, B>(fn, tracer, span);
+    }
+
+    private <A, B, C> BiFunction<A, B, C> wrap(BiFunction<A, B, C> fn) {
+        return span == null ? fn : new TracedFunctions.TracedBiFunction<A, B, C>(fn, tracer, span);
+    }
+
+    private <A> Consumer<A> wrap(Consumer<A> action) {
+        return span == null ? action : new TracedFunctions.TracedConsumer<A>(action, tracer, span);
+    }
+
+    private <A, B> BiConsumer<A, B> wrap(BiConsumer<A, B> action) {
+        return span == null ? action : new TracedFunctions.TracedBiConsumer<A, B>(action, tracer, span);
+    }
+
+    private Runnable wrap(Runnable action) {
+        return span == null ? action : new TracedFunctions.TracedAction(action, tracer, span);
+    }
+
+    @Override
+    public <U> CompletionStage<U> thenApply(Function<? super T, ? extends U> fn) {
+        return traced(delegate.thenApply(wrap(fn)));
+    }
+
+    @Override
+    public <U> CompletionStage<U> thenApplyAsync(Function<? super T, ? extends U> fn) {
+        return traced(delegate.thenApplyAsync(wrap(fn)));
+    }
+
+    @Override
+    public <U> CompletionStage<U> thenApplyAsync(Function<? super T, ? extends U> fn, Executor executor) {
+        return traced(delegate.thenApplyAsync(wrap(fn), executor));
+    }
+
+    @Override
+    public CompletionStage<Void> thenAccept(Consumer<? super T> action) {
+        return traced(delegate.thenAccept(wrap(action)));
+    }
+
+    @Override
+    public CompletionStage<Void> thenAcceptAsync(Consumer<? super T> action) {
+        return traced(delegate.thenAcceptAsync(wrap(action)));
+    }
+
+    @Override
+    public CompletionStage<Void> thenAcceptAsync(Consumer<? super T> action, Executor executor) {
+        return traced(delegate.thenAcceptAsync(wrap(action), executor));
+    }
+
+    @Override
+    public CompletionStage<Void> thenRun(Runnable action) {
+        return traced(delegate.thenRun(wrap(action)));
+    }
+
+    @Override
+    public CompletionStage<Void> thenRunAsync(Runnable action) {
+        return traced(delegate.thenRunAsync(wrap(action)));
+    }
+
+    @Override
+    public CompletionStage<Void> thenRunAsync(Runnable action, Executor executor) {
+        return traced(delegate.thenRunAsync(wrap(action), executor));
+    }
+
+    @Override
+    public <U, V> CompletionStage<V> thenCombine(CompletionStage<? extends U> other,
+                                                 BiFunction<? super T, ? super U, ? extends V> fn) {
+        return traced(delegate.thenCombine(other, wrap(fn)));
+    }
+
+    @Override
+    public <U, V> CompletionStage<V> thenCombineAsync(CompletionStage<? extends U> other,
+                                                      BiFunction<? super T, ? super U, ? extends V> fn) {
+        return traced(delegate.thenCombineAsync(other, wrap(fn)));
+    }
+
+    @Override
+    public <U, V> CompletionStage<V> thenCombineAsync(CompletionStage<? extends U> other,
+                                                      BiFunction<? super T, ? super U, ? extends V> fn,
+                                                      Executor executor) {
+        return traced(delegate.thenCombineAsync(other, wrap(fn), executor));
+    }
+
+    @Override
+    public <U> CompletionStage<Void> thenAcceptBoth(CompletionStage<? extends U> other,
+                                                    BiConsumer<? super T, ? super U> action) {
+        return traced(delegate.thenAcceptBoth(other, wrap(action)));
+    }
+
+    @Override
+    public <U> CompletionStage<Void> thenAcceptBothAsync(CompletionStage<? extends U> other,
+                                                         BiConsumer<? super T, ? super U> action) {
+        return traced(delegate.thenAcceptBothAsync(other, wrap(action)));
+    }
+
+    @Override
+    public <U> CompletionStage<Void> thenAcceptBothAsync(CompletionStage<? extends U> other,
+                                                         BiConsumer<? super T, ? super U> action,
+                                                         Executor executor) {
+        return traced(delegate.thenAcceptBothAsync(other, wrap(action), executor));
+    }
+
+    @Override
+    public CompletionStage<Void> runAfterBoth(CompletionStage<?> other, Runnable action) {
+        return traced(delegate.runAfterBoth(other, wrap(action)));
+    }
+
+    @Override
+    public CompletionStage<Void> runAfterBothAsync(CompletionStage<?> other, Runnable action) {
+        return traced(delegate.runAfterBothAsync(other, wrap(action)));
+    }
+
+    @Override
+    public CompletionStage<Void> runAfterBothAsync(CompletionStage<?> other, Runnable action, Executor executor) {
+        return traced(delegate.runAfterBothAsync(other, wrap(action), executor));
+    }
+
+    @Override
+    public <U> CompletionStage<U> applyToEither(CompletionStage<? extends T> other, Function<? super T, U> fn) {
+        return traced(delegate.applyToEither(other, wrap(fn)));
+    }
+
+    @Override
+    public <U> CompletionStage<U> applyToEitherAsync(CompletionStage<? extends T> other,
+                                                     Function<? super T, U> fn) {
+        return traced(delegate.applyToEitherAsync(other, wrap(fn)));
+    }
+
+    @Override
+    public <U> CompletionStage<U> applyToEitherAsync(CompletionStage<? extends T> other, Function<? super T, U> fn,
+                                                     Executor executor) {
+        return traced(delegate.applyToEitherAsync(other, wrap(fn), executor));
+    }
+
+    @Override
+    public CompletionStage<Void> acceptEither(CompletionStage<? extends T> other, Consumer<? super T> action) {
+        return traced(delegate.acceptEither(other, wrap(action)));
+    }
+
+    @Override
+    public CompletionStage<Void> acceptEitherAsync(CompletionStage<? extends T> other,
+                                                   Consumer<? super T> action) {
+        return traced(delegate.acceptEitherAsync(other, wrap(action)));
+    }
+
+    @Override
+    public CompletionStage<Void> acceptEitherAsync(CompletionStage<? extends T> other, Consumer<? super T> action,
+                                                   Executor executor) {
+        return traced(delegate.acceptEitherAsync(other, wrap(action), executor));
+    }
+
+    @Override
+    public CompletionStage<Void> runAfterEither(CompletionStage<?> other, Runnable action) {
+        return traced(delegate.runAfterEither(other, wrap(action)));
+    }
+
+    @Override
+    public CompletionStage<Void> runAfterEitherAsync(CompletionStage<?> other, Runnable action) {
+        return traced(delegate.runAfterEitherAsync(other, wrap(action)));
+    }
+
+    @Override
+    public CompletionStage<Void> runAfterEitherAsync(CompletionStage<?> other, Runnable action, Executor executor) {
+        return traced(delegate.runAfterEitherAsync(other, wrap(action), executor));
+    }
+
+    @Override
+    public <U> CompletionStage<U> thenCompose(Function<? super T, ? extends CompletionStage<U>> fn) {
+        return traced(delegate.thenCompose(wrap(fn)));
+    }
+
+    @Override
+    public <U> CompletionStage<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> fn) {
+        return traced(delegate.thenComposeAsync(wrap(fn)));
+    }
+
+    @Override
+    public <U> CompletionStage<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> fn,
+                                                   Executor executor) {
+        return traced(delegate.thenComposeAsync(wrap(fn), executor));
+    }
+
+    @Override
+    public CompletionStage<T> exceptionally(Function<Throwable, ? extends T> fn) {
+        return traced(delegate.exceptionally(wrap(fn)));
+    }
+
+    @Override
+    public CompletionStage<T> whenComplete(BiConsumer<? super T, ? super Throwable> action) {
+        return traced(delegate.whenComplete(wrap(action)));
+    }
+
+    @Override
+    public CompletionStage<T> whenCompleteAsync(BiConsumer<? super T, ? super Throwable> action) {
+        return traced(delegate.whenCompleteAsync(wrap(action)));
+    }
+
+    @Override
+    public CompletionStage<T> whenCompleteAsync(BiConsumer<? super T, ? super Throwable> action,
+                                                Executor executor) {
+        return traced(delegate.whenCompleteAsync(wrap(action), executor));
+    }
+
+    @Override
+    public <U> CompletionStage<U> handle(BiFunction<? super T, Throwable, ? extends U> fn) {
+        return traced(delegate.handle(wrap(fn)));
+    }
+
+    @Override
+    public <U> CompletionStage<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn) {
+        return traced(delegate.handleAsync(wrap(fn)));
+    }
+
+    @Override
+    public <U> CompletionStage<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn, Executor executor) {
+        return traced(delegate.handleAsync(wrap(fn), executor));
+    }
+
+    @Override
+    public CompletableFuture<T> toCompletableFuture() {
+        return delegate.toCompletableFuture();
+    }
+
+    @Override
+    public String toString() {
+        return "TracedCompletionStage{" + delegate + "}";
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.concurrent;
+
+import io.opentracing.Tracer;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link ForkJoinPool} running each task submitted from outside with the span that was active in the submitting
+ * thread, as the {@code TracedExecutorService} of opentracing-util does.
+ *
+ * <p>
+ * Subtasks forked by a task do not go through the pool's submission methods: to carry the span into them, extend
+ * {@link TracedRecursiveTask} or {@link TracedRecursiveAction}, which capture it when created and are submitted
+ * unwrapped. Likewise, wrap the lambdas of parallel streams with {@link TracedFunctions}.
+ */
+public class TracedForkJoinPool extends ForkJoinPool {
+    private final Tracer tracer;
+
+    /**
+     * Creates a pool with a parallelism equal to the number of available processors.
+     */
+    public TracedForkJoinPool(Tracer tracer) {
+        this(Runtime.getRuntime().availableProcessors(), tracer);
+    }
+
+    public TracedForkJoinPool(int parallelism, Tracer tracer) {
+        super(parallelism);
+        if (tracer == null) {
+            throw new NullPointerException("tracer");
+        }
+        this.tracer = tracer;
+    }
+
+    @Override
+    public <T> T invoke(ForkJoinTask<T> task) {
+        return super.invoke(TracedForkJoinTask.wrap(task, tracer));
+    }
+
+    @Override
+    public void execute(ForkJoinTask<?> task) {
+        super.execute(TracedForkJoinTask.wrap(task, tracer));
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        super.execute(TracedRunnable.wrap(task, tracer));
+    }
+
+    @Override
+    public <T> ForkJoinTask<T> submit(ForkJoinTask<T> task) {
+        return super.submit(TracedForkJoinTask.wrap(task, tracer));
+    }
+
+    @Override
+    public <T> ForkJoinTask<T> submit(Callable<T> task) {
+        return super.submit(TracedCallable.wrap(task, tracer));
+    }
+
+    @Override
+    public <T> ForkJoinTask<T> submit(Runnable task, T result) {
+        return super.submit(TracedRunnable.wrap(task, tracer), result);
+    }
+
+    @Override
+    public ForkJoinTask<?> submit(Runnable task) {
+        return super.submit(TracedRunnable.wrap(task, tracer));
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) {
+        return super.invokeAll(TracedCallable.wrapAll(tasks, tracer));
+    }
+}
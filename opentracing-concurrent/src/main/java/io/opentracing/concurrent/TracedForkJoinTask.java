@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.concurrent;
+
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A ForkJoinTask invoking another one with the span that was active when it was created, for the tasks submitted to
+ * a {@link TracedForkJoinPool} that do not carry a span of their own. The span is not serialized with the task,
+ * which then runs without it.
+ */
+final class TracedForkJoinTask<T> extends ForkJoinTask<T> {
+    private static final long serialVersionUID = 1L;
+
+    private final ForkJoinTask<T> delegate;
+    private final transient Tracer tracer;
+    private final transient Span span;
+
+    private TracedForkJoinTask(ForkJoinTask<T> delegate, Tracer tracer, Span span) {
+        this.delegate = delegate;
+        this.tracer = tracer;
+        this.span = span;
+    }
+
+    /**
+     * @return the task wrapped with the active span, or the task itself if no span is active or the task
+     * captures the span itself
+     */
+    static <T> ForkJoinTask<T> wrap(ForkJoinTask<T> task, Tracer tracer) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        if (task instanceof TracedRecursiveTask || task instanceof TracedRecursiveAction) {
+            return task;
+        }
+        Span span = tracer.activeSpan();
+        return span == null ? task : new TracedForkJoinTask<T>(task, tracer, span);
+    }
+
+    @Override
+    public T getRawResult() {
+        return delegate.getRawResult();
+    }
+
+    @Override
+    protected void setRawResult(T value) {
+    }
+
+    @Override
+    protected boolean exec() {
+        if (span == null) {
+            delegate.invoke();
+            return true;
+        }
+        Scope scope = tracer.activateSpan(span);
+        try {
+            delegate.invoke();
+        } finally {
+            scope.close();
+        }
+        return true;
+    }
+}
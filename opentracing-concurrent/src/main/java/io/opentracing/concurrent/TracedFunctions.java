@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.concurrent;
+
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Wraps functions to run them with the span active when they were wrapped, e.g. the lambdas of a parallel stream,
+ * which run on {@link java.util.concurrent.ForkJoinPool} workers:
+ *
+ * <pre><code>
+ * try (Scope scope = tracer.activateSpan(span)) {
+ *     records.parallelStream()
+ *             .map(TracedFunctions.function(record -&gt; process(record), tracer))
+ *             .forEach(TracedFunctions.consumer(result -&gt; store(result), tracer));
+ * }
+ * </code></pre>
+ *
+ * <p>
+ * The wrappers activate the span only if it is not already the active span of the thread running them. Functions
+ * wrapped while no span is active are returned as they are.
+ */
+public final class TracedFunctions {
+    private TracedFunctions() {
+    }
+
+    public static <T, R> Function<T, R> function(Function<T, R> fn, Tracer tracer) {
+        Span span = tracer.activeSpan();
+        return span == null ? fn : new TracedFunction<T, R>(fn, tracer, span);
+    }
+
+    public static <T> Consumer<T> consumer(Consumer<T> action, Tracer tracer) {
+        Span span = tracer.activeSpan();
+        return span == null ? action : new TracedConsumer<T>(action, tracer, span);
+    }
+
+    public static <T> Predicate<T> predicate(Predicate<T> predicate, Tracer tracer) {
+        Span span = tracer.activeSpan();
+        return span == null ? predicate : new TracedPredicate<T>(predicate, tracer, span);
+    }
+
+    /**
+     * A callback activating the span it was created with, unless it is already active.
+     */
+    abstract static class Callback {
+        private final Tracer tracer;
+        private final Span span;
+
+        Callback(Tracer tracer, Span span) {
+            this.tracer = tracer;
+            this.span = span;
+        }
+
+        /**
+         * @return the scope to close once the callback is done, or null if the span was already active
+         */
+        final Scope activate() {
+            return tracer.activeSpan() == span ? null : tracer.activateSpan(span);
+        }
+
+        static void close(Scope scope) {
+            if (scope != null) {
+                scope.close();
+            }
+        }
+    }
+
+    static final class TracedFunction<A, B> extends Callback implements Function<A, B> {
+        private final Function<A, B> delegate;
+
+        TracedFunction(Function<A, B> delegate, Tracer tracer, Span span) {
+            super(tracer, span);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public B apply(A a) {
+            Scope scope = activate();
+            try {
+                return delegate.apply(a);
+            } finally {
+                close(scope);
+            }
+        }
+    }
+
+    static final class TracedBiFunction<A, B, C> extends Callback implements BiFunction<A, B, C> {
+        private final BiFunction<A, B, C> delegate;
+
+        TracedBiFunction(BiFunction<A, B, C> delegate, Tracer tracer, Span span) {
+            super(tracer, span);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public C apply(A a, B b) {
+            Scope scope = activate();
+            try {
+                return delegate.apply(a, b);
+            } finally {
+                close(scope);
+            }
+        }
+    }
+
+    static final class TracedConsumer<A> extends Callback implements Consumer<A> {
+        private final Consumer<A> delegate;
+
+        TracedConsumer(Consumer<A> delegate, Tracer tracer, Span span) {
+            super(tracer, span);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void accept(A a) {
+            Scope scope = activate();
+            try {
+                delegate.accept(a);
+            } finally {
+                close(scope);
+            }
+        }
+    }
+
+    static final class TracedBiConsumer<A, B> extends Callback implements BiConsumer<A, B> {
+        private final BiConsumer<A, B> delegate;
+
+        TracedBiConsumer(BiConsumer<A, B> delegate, Tracer tracer, Span span) {
+            super(tracer, span);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void accept(A a, B b) {
+            Scope scope = activate();
+            try {
+                delegate.accept(a, b);
+            } finally {
+                close(scope);
+            }
+        }
+    }
+
+    static final class TracedAction extends Callback implements Runnable {
+        private final Runnable delegate;
+
+        TracedAction(Runnable delegate, Tracer tracer, Span span) {
+            super(tracer, span);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run() {
+            Scope scope = activate();
+            try {
+                delegate.run();
+            } finally {
+                close(scope);
+            }
+        }
+    }
+
+    static final class TracedPredicate<A> extends Callback implements Predicate<A> {
+        private final Predicate<A> delegate;
+
+        TracedPredicate(Predicate<A> delegate, Tracer tracer, Span span) {
+            super(tracer, span);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean test(A a) {
+            Scope scope = activate();
+            try {
+                return delegate.test(a);
+            } finally {
+                close(scope);
+            }
+        }
+    }
+}
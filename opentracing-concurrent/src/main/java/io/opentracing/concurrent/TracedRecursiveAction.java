@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.concurrent;
+
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A {@link RecursiveAction} computing with the span that was active when it was created, as
+ * {@link TracedRecursiveTask} does. The span is not serialized with the action, which then computes without it.
+ */
+public abstract class TracedRecursiveAction extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Tracer tracer;
+    private final transient Span span;
+
+    protected TracedRecursiveAction(Tracer tracer) {
+        this.tracer = tracer;
+        this.span = tracer.activeSpan();
+    }
+
+    @Override
+    protected final void compute() {
+        if (span == null || tracer.activeSpan() == span) {
+            computeTraced();
+            return;
+        }
+        Scope scope = tracer.activateSpan(span);
+        try {
+            computeTraced();
+        } finally {
+            scope.close();
+        }
+    }
+
+    /**
+     * The computation of this action, run with the span that was active when it was created.
+     */
+    protected abstract void computeTraced();
+}
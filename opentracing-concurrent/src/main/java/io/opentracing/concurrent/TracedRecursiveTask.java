@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.concurrent;
+
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A {@link RecursiveTask} computing with the span that was active when it was created, so that the subtasks it
+ * forks, created while it computes, carry the same span to the workers that steal them.
+ *
+ * <p>
+ * The span is captured once by the constructor and handed over with the task through the work-stealing queues,
+ * without any locking. {@link #compute()} activates it only if it is not already the active span of the worker,
+ * which is the case for subtasks run by the thread that forked them. The span is not serialized with the task,
+ * which then computes without it.
+ */
+public abstract class TracedRecursiveTask<V> extends RecursiveTask<V> {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Tracer tracer;
+    private final transient Span span;
+
+    protected TracedRecursiveTask(Tracer tracer) {
+        this.tracer = tracer;
+        this.span = tracer.activeSpan();
+    }
+
+    @Override
+    protected final V compute() {
+        if (span == null || tracer.activeSpan() == span) {
+            return computeTraced();
+        }
+        Scope scope = tracer.activateSpan(span);
+        try {
+            return computeTraced();
+        } finally {
+            scope.close();
+        }
+    }
+
+    /**
+     * The computation of this task, run with the span that was active when it was created.
+     */
+    protected abstract V computeTraced();
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMapExtract;
+import io.opentracing.propagation.TextMapInject;
+import io.opentracing.util.HexCodec;
+import java.util.Map;
+
+/**
+ * Propagates contexts in Zipkin's B3 headers, either the single {@code b3} header or the {@code X-B3-*} ones. Both
+ * forms are extracted, whatever the case of their names.
+ *
+ * The headers of each context are cached, so that injecting it again does not format them again.
+ *
+ * Header names vary in case between clients and proxies, so extraction walks the carrier rather than looking names
+ * up, and matches them case-insensitively without allocating: on length first, then on the first char, and only
+ * then with {@link String#regionMatches(boolean, int, String, int, int)}.
+ *
+ * @see MockTracer.Propagator#B3_MULTI
+ * @see MockTracer.Propagator#B3_SINGLE
+ */
+final class B3Propagator implements MockTracer.Propagator {
+    static final String B3 = "b3";
+    static final String TRACE_ID = "X-B3-TraceId";
+    static final String SPAN_ID = "X-B3-SpanId";
+    static final String SAMPLED = "X-B3-Sampled";
+
+    private final boolean singleHeader;
+
+    B3Propagator(boolean singleHeader) {
+        this.singleHeader = singleHeader;
+    }
+
+    @Override
+    public <C> void inject(MockSpan.MockContext ctx, Format<C> format, C carrier) {
+        if (!(carrier instanceof TextMapInject)) {
+            throw new IllegalArgumentException("Expected TextMapInject, received " + carrier.getClass());
+        }
+
+        String[] entries = (String[]) ctx.encoding(this);
+        if (entries == null) {
+            entries = encode(ctx);
+            ctx.cacheEncoding(this, entries);
+        }
+        TextMapInject textMap = (TextMapInject) carrier;
+        for (int i = 0; i < entries.length; i += 2) {
+            textMap.put(entries[i], entries[i + 1]);
+        }
+    }
+
+    private String[] encode(MockSpan.MockContext ctx) {
+        int traceIdLength = ctx.traceIdHigh() == 0 ? 16 : 32;
+        if (singleHeader) {
+            char[] chars = new char[traceIdLength + 19];
+            encodeTraceId(ctx, chars);
+            chars[traceIdLength] = '-';
+            HexCodec.encode(ctx.spanId(), chars, traceIdLength + 1);
+            chars[traceIdLength + 17] = '-';
+            chars[traceIdLength + 18] = '1';
+            return new String[] {B3, new String(chars)};
+        }
+        char[] chars = new char[traceIdLength];
+        encodeTraceId(ctx, chars);
+        return new String[] {TRACE_ID, new String(chars), SPAN_ID, HexCodec.toHex(ctx.spanId()), SAMPLED, "1"};
+    }
+
+    @Override
+    public <C> MockSpan.MockContext extract(Format<C> format, C carrier) {
+        if (!(carrier instanceof TextMapExtract)) {
+            throw new IllegalArgumentException("Expected TextMapExtract, received " + carrier.getClass());
+        }
+
+        String single = null;
+        String traceId = null;
+        String spanId = null;
+        for (Map.Entry<String, String> entry : (TextMapExtract) carrier) {
+            String key = entry.getKey();
+            if (key == null) {
+                continue;
+            }
+            if (matches(key, B3)) {
+                single = entry.getValue();
+            } else if (matches(key, TRACE_ID)) {
+                traceId = entry.getValue();
+            } else if (matches(key, SPAN_ID)) {
+                spanId = entry.getValue();
+            }
+        }
+
+        if (single != null) {
+            return parseSingle(single);
+        }
+        if (traceId == null || spanId == null || !isId(spanId, 0, spanId.length())) {
+            return null;
+        }
+        int traceIdLength = traceId.length();
+        if ((traceIdLength != 16 && traceIdLength != 32) || !HexCodec.isHex(traceId, 0, traceIdLength)) {
+            return null;
+        }
+        return newContext(traceId, traceIdLength, spanId, 0);
+    }
+
+    /**
+     * Parses {@code {TraceId}-{SpanId}[-{SamplingState}[-{ParentSpanId}]]}. A lone sampling state carries no context.
+     */
+    private static MockSpan.MockContext parseSingle(String value) {
+        int traceIdLength = value.indexOf('-');
+        if (traceIdLength != 16 && traceIdLength != 32) {
+            return null;
+        }
+        int length = value.length();
+        int spanIdEnd = traceIdLength + 17;
+        if (length != spanIdEnd && length != spanIdEnd + 2 && length != spanIdEnd + 19) {
+            return null;
+        }
+        if (length > spanIdEnd && value.charAt(spanIdEnd) != '-') {
+            return null;
+        }
+        if (length == spanIdEnd + 19 && (value.charAt(spanIdEnd + 2) != '-'
+                || !HexCodec.isHex(value, spanIdEnd + 3, 16))) {
+            return null;
+        }
+        if (!HexCodec.isHex(value, 0, traceIdLength) || !isId(value, traceIdLength + 1, 16)) {
+            return null;
+        }
+        return newContext(value, traceIdLength, value, traceIdLength + 1);
+    }
+
+    private static MockSpan.MockContext newContext(String traceId, int traceIdLength, String spanId,
+                                                   int spanIdOffset) {
+        long traceIdHigh = traceIdLength == 32 ? HexCodec.decode(traceId, 0, 16) : 0;
+        long traceIdLow = HexCodec.decode(traceId, traceIdLength - 16, 16);
+        if (traceIdHigh == 0 && traceIdLow == 0) {
+            return null;
+        }
+        return new MockSpan.MockContext(traceIdHigh, traceIdLow, HexCodec.decode(spanId, spanIdOffset, 16),
+                BaggageMap.EMPTY);
+    }
+
+    private static boolean isId(String value, int offset, int length) {
+        return length == 16 && value.length() >= offset + 16 && HexCodec.isHex(value, offset, 16)
+                && HexCodec.decode(value, offset, 16) != 0;
+    }
+
+    private static void encodeTraceId(MockSpan.MockContext ctx, char[] chars) {
+        if (ctx.traceIdHigh() == 0) {
+            HexCodec.encode(ctx.traceId(), chars, 0);
+        } else {
+            HexCodec.encode(ctx.traceIdHigh(), chars, 0);
+            HexCodec.encode(ctx.traceId(), chars, 16);
+        }
+    }
+
+    static boolean matches(String key, String name) {
+        return key.length() == name.length()
+                && Character.toLowerCase(key.charAt(0)) == Character.toLowerCase(name.charAt(0))
+                && key.regionMatches(true, 0, name, 0, name.length());
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable baggage map that shares its structure with the map it was derived from.
+ *
+ * It is a hash array mapped trie: {@link #with(String, String)} only copies the nodes on the path to the changed
+ * entry, so adding an item costs O(log32 n) rather than a copy of the whole map, and a child span can simply reuse the
+ * map of its parent. Up to 32 items (the common case for baggage) fit in a single flat node.
+ */
+final class BaggageMap extends AbstractMap<String, String> {
+    static final BaggageMap EMPTY = new BaggageMap(BitmapNode.EMPTY, 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final Object NULL_KEY = new Object();
+    private static final Object NOT_FOUND = new Object();
+
+    private final Node root;
+    private final int size;
+    private Set<Entry<String, String>> entrySet;
+
+    private BaggageMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @return the given map itself if it is a BaggageMap, otherwise an immutable copy of it
+     */
+    static BaggageMap copyOf(Map<String, String> map) {
+        if (map instanceof BaggageMap) {
+            return (BaggageMap) map;
+        }
+        BaggageMap result = EMPTY;
+        if (map != null) {
+            for (Entry<String, String> entry : map.entrySet()) {
+                result = result.with(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param keysAndValues {@code count} keys, each followed by its value; a repeated key keeps its last value
+     * @return a map of the given items
+     */
+    static BaggageMap of(String[] keysAndValues, int count) {
+        if (count == 0) {
+            return EMPTY;
+        }
+        // Usually each key lands in its own slot of the root node, which is then built in one go.
+        int bitmap = 0;
+        for (int i = 0; i < count; i++) {
+            int bit = 1 << (hash(maskNull(keysAndValues[2 * i])) & MASK);
+            if ((bitmap & bit) != 0) {
+                BaggageMap result = EMPTY;
+                for (int j = 0; j < count; j++) {
+                    result = result.with(keysAndValues[2 * j], keysAndValues[2 * j + 1]);
+                }
+                return result;
+            }
+            bitmap |= bit;
+        }
+        Object[] array = new Object[2 * count];
+        for (int i = 0; i < count; i++) {
+            Object key = maskNull(keysAndValues[2 * i]);
+            int index = 2 * Integer.bitCount(bitmap & ((1 << (hash(key) & MASK)) - 1));
+            array[index] = key;
+            array[index + 1] = keysAndValues[2 * i + 1];
+        }
+        return new BaggageMap(new BitmapNode(bitmap, array), count);
+    }
+
+    /**
+     * @return a map with the given item added to the items of this one, which is left unchanged
+     */
+    BaggageMap with(String key, String value) {
+        Object k = maskNull(key);
+        int hash = hash(k);
+        Object previous = root.find(k, hash, 0);
+        if (previous != NOT_FOUND && Objects.equals(previous, value)) {
+            return this;
+        }
+        return new BaggageMap(root.with(k, hash, 0, value), previous == NOT_FOUND ? size + 1 : size);
+    }
+
+    /**
+     * @return a map with the items of the given one added to the items of this one, which is left unchanged
+     */
+    BaggageMap withAll(BaggageMap other) {
+        if (other.size == 0) {
+            return this;
+        }
+        if (size == 0) {
+            return other;
+        }
+        BaggageMap result = this;
+        for (Entry<String, String> entry : other.entrySet()) {
+            result = result.with(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Receives the items of a BaggageMap, without allocating an entry for each of them.
+     */
+    interface ItemVisitor {
+        void visit(String key, String value);
+    }
+
+    void forEach(ItemVisitor visitor) {
+        forEach(root, visitor);
+    }
+
+    private static void forEach(Node node, ItemVisitor visitor) {
+        Object[] array = node.array;
+        for (int i = 0; i < array.length; i += 2) {
+            Object key = array[i];
+            if (key == null) {
+                forEach((Node) array[i + 1], visitor);
+            } else {
+                visitor.visit(key == NULL_KEY ? null : (String) key, (String) array[i + 1]);
+            }
+        }
+    }
+
+    @Override
+    public String get(Object key) {
+        Object k = maskNull(key);
+        Object value = root.find(k, hash(k), 0);
+        return value == NOT_FOUND ? null : (String) value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Object k = maskNull(key);
+        return root.find(k, hash(k), 0) != NOT_FOUND;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new EntryIterator(root);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private static Object maskNull(Object key) {
+        return key == null ? NULL_KEY : key;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * A trie node, holding key/value pairs in {@code array}; a null key marks a pair whose value is a child node.
+     */
+    private abstract static class Node {
+        final Object[] array;
+
+        Node(Object[] array) {
+            this.array = array;
+        }
+
+        /**
+         * @return the value of the key, or NOT_FOUND
+         */
+        abstract Object find(Object key, int hash, int shift);
+
+        abstract Node with(Object key, int hash, int shift, String value);
+    }
+
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+
+        BitmapNode(int bitmap, Object[] array) {
+            super(array);
+            this.bitmap = bitmap;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return NOT_FOUND;
+            }
+            int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+            Object k = array[index];
+            if (k == null) {
+                return ((Node) array[index + 1]).find(key, hash, shift + BITS);
+            }
+            return key.equals(k) ? array[index + 1] : NOT_FOUND;
+        }
+
+        @Override
+        Node with(Object key, int hash, int shift, String value) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, index);
+                newArray[index] = key;
+                newArray[index + 1] = value;
+                System.arraycopy(array, index, newArray, index + 2, array.length - index);
+                return new BitmapNode(bitmap | bit, newArray);
+            }
+
+            Object k = array[index];
+            Object v = array[index + 1];
+            Object[] newArray = array.clone();
+            if (k == null) {
+                newArray[index + 1] = ((Node) v).with(key, hash, shift + BITS, value);
+            } else if (key.equals(k)) {
+                newArray[index + 1] = value;
+            } else {
+                newArray[index] = null;
+                newArray[index + 1] = pair(shift + BITS, k, (String) v, key, hash, value);
+            }
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        private static Node pair(int shift, Object key1, String value1, Object key2, int hash2, String value2) {
+            int hash1 = hash(key1);
+            if (shift >= Integer.SIZE) {
+                // Every bit of the hashes is used up, so they are equal.
+                return new CollisionNode(new Object[] {key1, value1, key2, value2});
+            }
+            return EMPTY.with(key1, hash1, shift, value1).with(key2, hash2, shift, value2);
+        }
+    }
+
+    /**
+     * Holds the keys whose hashes are equal, in a flat array.
+     */
+    private static final class CollisionNode extends Node {
+        CollisionNode(Object[] array) {
+            super(array);
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return array[i + 1];
+                }
+            }
+            return NOT_FOUND;
+        }
+
+        @Override
+        Node with(Object key, int hash, int shift, String value) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    Object[] newArray = array.clone();
+                    newArray[i + 1] = value;
+                    return new CollisionNode(newArray);
+                }
+            }
+            Object[] newArray = new Object[array.length + 2];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            return new CollisionNode(newArray);
+        }
+    }
+
+    private static final class EntryIterator implements Iterator<Entry<String, String>> {
+        // A 32-bit hash is used up after 7 levels, below which there can only be a CollisionNode.
+        private final Object[][] arrays = new Object[8][];
+        private final int[] positions = new int[8];
+        private int depth;
+        private Entry<String, String> next;
+
+        EntryIterator(Node root) {
+            arrays[0] = root.array;
+            advance();
+        }
+
+        private void advance() {
+            while (depth >= 0) {
+                Object[] array = arrays[depth];
+                int position = positions[depth];
+                if (position == array.length) {
+                    depth--;
+                    continue;
+                }
+                positions[depth] = position + 2;
+                Object key = array[position];
+                if (key == null) {
+                    depth++;
+                    arrays[depth] = ((Node) array[position + 1]).array;
+                    positions[depth] = 0;
+                } else {
+                    next = new SimpleImmutableEntry<>(key == NULL_KEY ? null : (String) key,
+                            (String) array[position + 1]);
+                    return;
+                }
+            }
+            next = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<String, String> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Entry<String, String> result = next;
+            advance();
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
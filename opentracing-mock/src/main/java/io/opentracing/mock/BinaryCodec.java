@@ -0,0 +1,365 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The wire layout of {@link MockTracer.Propagator#BINARY}, read and written in place in the carrier's ByteBuffer.
+ *
+ * <pre>
+ * version      1 byte, currently 1
+ * flags        1 byte, bit 0 set when a high trace id follows
+ * traceIdHigh  8 bytes, only present when flagged
+ * traceId      8 bytes
+ * spanId       8 bytes
+ * count        varint, the number of baggage items
+ * count times:
+ *   key        varint length, then that many bytes of UTF-8
+ *   value      varint length, then that many bytes of UTF-8
+ * </pre>
+ *
+ * Ids are big-endian whatever the order of the ByteBuffer, and varints are unsigned LEB128. A null key or value
+ * is written as the length -1 (the 5 bytes {@code ff ff ff ff 0f}) with no bytes following.
+ *
+ * Decoding checks the lengths of the baggage items right away, but only copies their bytes: the Strings are decoded
+ * when the baggage is first read, and are not decoded at all to inject the context (or a child of it) again.
+ */
+final class BinaryCodec {
+    static final byte VERSION = 1;
+    private static final int FLAG_TRACE_ID_HIGH = 1;
+    private static final int NULL_LENGTH = -1;
+
+    private BinaryCodec() {
+    }
+
+    /**
+     * @return the exact number of bytes {@link #encode(MockSpan.MockContext, ByteBuffer)} writes
+     */
+    static int encodedSize(MockSpan.MockContext context) {
+        int size = 2 + (context.traceIdHigh() != 0 ? 8 : 0) + 16;
+        if (context.lazyBaggage() instanceof EncodedBaggage) {
+            EncodedBaggage encoded = (EncodedBaggage) context.lazyBaggage();
+            return size + varintSize(encoded.count) + encoded.items.length;
+        }
+        BaggageMap baggage = context.baggage();
+        Sizer sizer = new Sizer();
+        baggage.forEach(sizer);
+        return size + varintSize(baggage.size()) + sizer.size;
+    }
+
+    /**
+     * @return the encoded context, in an array of exactly {@link #encodedSize(MockSpan.MockContext)} bytes
+     */
+    static byte[] encode(MockSpan.MockContext context) {
+        byte[] encoded = new byte[encodedSize(context)];
+        encode(context, ByteBuffer.wrap(encoded));
+        return encoded;
+    }
+
+    static void encode(MockSpan.MockContext context, ByteBuffer buffer) {
+        long traceIdHigh = context.traceIdHigh();
+        buffer.put(VERSION);
+        buffer.put((byte) (traceIdHigh != 0 ? FLAG_TRACE_ID_HIGH : 0));
+        if (traceIdHigh != 0) {
+            putLong(buffer, traceIdHigh);
+        }
+        putLong(buffer, context.traceId());
+        putLong(buffer, context.spanId());
+        if (context.lazyBaggage() instanceof EncodedBaggage) {
+            EncodedBaggage encoded = (EncodedBaggage) context.lazyBaggage();
+            putVarint(buffer, encoded.count);
+            buffer.put(encoded.items);
+            return;
+        }
+        BaggageMap baggage = context.baggage();
+        putVarint(buffer, baggage.size());
+        baggage.forEach(new Writer(buffer));
+    }
+
+    private static final class Sizer implements BaggageMap.ItemVisitor {
+        int size;
+
+        @Override
+        public void visit(String key, String value) {
+            size += stringSize(key) + stringSize(value);
+        }
+    }
+
+    private static final class Writer implements BaggageMap.ItemVisitor {
+        private final ByteBuffer buffer;
+
+        Writer(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void visit(String key, String value) {
+            putString(buffer, key);
+            putString(buffer, value);
+        }
+    }
+
+    /**
+     * @return the decoded context, or null if the buffer is empty
+     * @throws IllegalArgumentException if the buffer does not hold a valid context; malformed UTF-8 in baggage items
+     *                                  is only reported once they are read
+     */
+    static MockSpan.MockContext decode(ByteBuffer buffer) {
+        if (!buffer.hasRemaining()) {
+            return null;
+        }
+        try {
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported binary format version " + version);
+            }
+            int flags = buffer.get();
+            long traceIdHigh = (flags & FLAG_TRACE_ID_HIGH) != 0 ? getLong(buffer) : 0;
+            long traceId = getLong(buffer);
+            long spanId = getLong(buffer);
+            int count = getLength(buffer, false);
+            if (count == 0) {
+                return new MockSpan.MockContext(traceIdHigh, traceId, spanId, BaggageMap.EMPTY);
+            }
+            int start = buffer.position();
+            for (int i = 0; i < 2 * count; i++) {
+                int length = getLength(buffer, true);
+                if (length != NULL_LENGTH) {
+                    buffer.position(buffer.position() + length);
+                }
+            }
+            byte[] items = new byte[buffer.position() - start];
+            buffer.position(start);
+            buffer.get(items);
+            return new MockSpan.MockContext(traceIdHigh, traceId, spanId, new EncodedBaggage(items, count), null);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Corrupted state", e);
+        }
+    }
+
+    /**
+     * The baggage items of a decoded context, as the bytes following their count.
+     */
+    static final class EncodedBaggage extends LazyBaggage {
+        final byte[] items;
+        final int count;
+
+        EncodedBaggage(byte[] items, int count) {
+            this.items = items;
+            this.count = count;
+        }
+
+        @Override
+        BaggageMap decode() {
+            ByteBuffer buffer = ByteBuffer.wrap(items);
+            String[] keysAndValues = new String[2 * count];
+            try {
+                for (int i = 0; i < keysAndValues.length; i++) {
+                    keysAndValues[i] = getString(buffer);
+                }
+            } catch (BufferUnderflowException e) {
+                throw new IllegalArgumentException("Corrupted state", e);
+            }
+            return BaggageMap.of(keysAndValues, count);
+        }
+    }
+
+    private static void putLong(ByteBuffer buffer, long value) {
+        buffer.putLong(buffer.order() == ByteOrder.BIG_ENDIAN ? value : Long.reverseBytes(value));
+    }
+
+    private static long getLong(ByteBuffer buffer) {
+        long value = buffer.getLong();
+        return buffer.order() == ByteOrder.BIG_ENDIAN ? value : Long.reverseBytes(value);
+    }
+
+    static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * @return a varint that can be no larger than the bytes left in the buffer, as every item takes at least a byte,
+     * or {@link #NULL_LENGTH} if allowed
+     */
+    private static int getLength(ByteBuffer buffer, boolean nullable) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if ((value < 0 && !(nullable && value == NULL_LENGTH)) || value > buffer.remaining()) {
+                    throw new IllegalArgumentException("Corrupted state, length " + value);
+                }
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupted state, malformed varint");
+    }
+
+    private static int stringSize(String value) {
+        if (value == null) {
+            return varintSize(NULL_LENGTH);
+        }
+        int length = utf8Length(value);
+        return varintSize(length) + length;
+    }
+
+    /**
+     * @return the number of bytes of the UTF-8 encoding of the value, where unpaired surrogates are replaced by '?'
+     * as in {@link String#getBytes(java.nio.charset.Charset)}
+     */
+    static int utf8Length(String value) {
+        int length = value.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes += 1;
+                } else if (!Character.isSurrogate(c)) {
+                    bytes += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    bytes += 2; // 4 bytes for 2 chars.
+                    i++;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            putVarint(buffer, NULL_LENGTH);
+            return;
+        }
+        int length = value.length();
+        putVarint(buffer, utf8Length(value));
+        int i = 0;
+        if (buffer.hasArray() && buffer.remaining() >= length) {
+            // Copy the ASCII prefix (usually all of it) straight into the backing array.
+            byte[] array = buffer.array();
+            int offset = buffer.arrayOffset() + buffer.position();
+            for (; i < length; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    break;
+                }
+                array[offset + i] = (byte) c;
+            }
+            buffer.position(buffer.position() + i);
+        }
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (!Character.isSurrogate(c)) {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                buffer.put((byte) '?');
+            }
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = getLength(buffer, true);
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            int offset = buffer.arrayOffset() + buffer.position();
+            if (isAscii(array, offset, length)) {
+                buffer.position(buffer.position() + length);
+                return new String(array, offset, length, StandardCharsets.US_ASCII);
+            }
+        }
+
+        char[] chars = new char[length];
+        int count = 0;
+        int end = buffer.position() + length;
+        while (buffer.position() < end) {
+            int b = buffer.get();
+            if (b >= 0) {
+                chars[count++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0) {
+                chars[count++] = (char) (((b & 0x1F) << 6) | continuation(buffer, end));
+            } else if ((b & 0xF0) == 0xE0) {
+                int c = ((b & 0x0F) << 12) | (continuation(buffer, end) << 6);
+                chars[count++] = (char) (c | continuation(buffer, end));
+            } else if ((b & 0xF8) == 0xF0) {
+                int codePoint = ((b & 0x07) << 18) | (continuation(buffer, end) << 12);
+                codePoint |= continuation(buffer, end) << 6;
+                codePoint |= continuation(buffer, end);
+                if (!Character.isSupplementaryCodePoint(codePoint)) {
+                    throw new IllegalArgumentException("Corrupted state, malformed UTF-8");
+                }
+                chars[count++] = Character.highSurrogate(codePoint);
+                chars[count++] = Character.lowSurrogate(codePoint);
+            } else {
+                throw new IllegalArgumentException("Corrupted state, malformed UTF-8");
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    private static boolean isAscii(byte[] array, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (array[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int continuation(ByteBuffer buffer, int end) {
+        if (buffer.position() >= end) {
+            throw new IllegalArgumentException("Corrupted state, truncated UTF-8");
+        }
+        int b = buffer.get();
+        if ((b & 0xC0) != 0x80) {
+            throw new IllegalArgumentException("Corrupted state, malformed UTF-8");
+        }
+        return b & 0x3F;
+    }
+}
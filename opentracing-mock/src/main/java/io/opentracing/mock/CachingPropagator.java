@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.KeyedTextMapExtract;
+import io.opentracing.propagation.TextMapExtract;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A {@link MockTracer.Propagator} that remembers the contexts its delegate extracted, keyed by the raw values of
+ * the trace headers they were extracted from, so that a service receiving the same headers over and over (e.g. a
+ * fan-out of calls within one trace) parses them only once.
+ *
+ * <pre><code>
+ * CachingPropagator propagator = new CachingPropagator(Propagator.TRACE_CONTEXT, 1024, "traceparent", "tracestate");
+ * MockTracer tracer = new MockTracer(propagator);
+ * </code></pre>
+ *
+ * The key headers must be all the headers the delegate reads: a delegate that also reads e.g. baggage headers not
+ * listed here would be handed the context cached for the first request with the same trace headers. Only text map
+ * carriers are cached; HTTP headers are matched case-insensitively, and the entries of other formats through
+ * {@link KeyedTextMapExtract#get(String)} when the carrier supports it. Carriers without the first key header, contexts the delegate
+ * does not find and injection are all passed on to the delegate.
+ *
+ * Cached contexts are shared between all the requests with the same headers, which is safe as MockContexts are
+ * immutable. The cache holds up to the given number of contexts in sets of 8 slots, and evicts them from each set with
+ * the CLOCK (second chance) policy: hits neither lock nor allocate, and misses lock one of a few stripes of sets.
+ * A workload that keeps missing pays for the cache on top of the extraction, so size it after the number of traces
+ * a service sees at once.
+ */
+public final class CachingPropagator implements MockTracer.Propagator {
+    private final MockTracer.Propagator delegate;
+    private final String[] keyHeaders;
+    private final ClockCache<Object, MockSpan.MockContext> cache;
+
+    /**
+     * @param delegate the Propagator extracting the contexts that are not cached yet
+     * @param capacity the maximum number of cached contexts
+     * @param keyHeaders the names of the headers the delegate reads, the first of which must be present
+     */
+    public CachingPropagator(MockTracer.Propagator delegate, int capacity, String... keyHeaders) {
+        if (delegate == null) {
+            throw new NullPointerException("delegate");
+        }
+        if (keyHeaders.length == 0) {
+            throw new IllegalArgumentException("keyHeaders must not be empty");
+        }
+        for (String keyHeader : keyHeaders) {
+            if (keyHeader == null || keyHeader.isEmpty()) {
+                throw new IllegalArgumentException("keyHeaders must not be null or empty");
+            }
+        }
+        this.delegate = delegate;
+        this.keyHeaders = keyHeaders.clone();
+        this.cache = new ClockCache<>(capacity);
+    }
+
+    @Override
+    public <C> void inject(MockSpan.MockContext ctx, Format<C> format, C carrier) {
+        delegate.inject(ctx, format, carrier);
+    }
+
+    @Override
+    public <C> MockSpan.MockContext extract(Format<C> format, C carrier) {
+        Object key = carrier instanceof TextMapExtract ? key(format, (TextMapExtract) carrier) : null;
+        if (key == null) {
+            return delegate.extract(format, carrier);
+        }
+        MockSpan.MockContext context = cache.get(key);
+        if (context == null) {
+            context = delegate.extract(format, carrier);
+            if (context != null) {
+                cache.put(key, context);
+            }
+        }
+        return context;
+    }
+
+    /**
+     * @return the value of the only key header, a {@link HeaderValues} for several of them, or null if the first
+     * key header is missing
+     */
+    private Object key(Format<?> format, TextMapExtract carrier) {
+        // Keyed lookups match names exactly, which HTTP header names must not be.
+        if (format != Format.Builtin.HTTP_HEADERS && carrier instanceof KeyedTextMapExtract) {
+            KeyedTextMapExtract keyed = (KeyedTextMapExtract) carrier;
+            String first = keyed.get(keyHeaders[0]);
+            if (first == null || keyHeaders.length == 1) {
+                return first;
+            }
+            String[] values = new String[keyHeaders.length];
+            values[0] = first;
+            for (int i = 1; i < keyHeaders.length; i++) {
+                values[i] = keyed.get(keyHeaders[i]);
+            }
+            return new HeaderValues(values);
+        }
+
+        String[] values = keyHeaders.length == 1 ? null : new String[keyHeaders.length];
+        String first = null;
+        for (Map.Entry<String, String> entry : carrier) {
+            String headerKey = entry.getKey();
+            if (B3Propagator.matches(headerKey, keyHeaders[0])) {
+                first = entry.getValue();
+                if (values == null) {
+                    return first;
+                }
+                values[0] = first;
+            } else if (values != null) {
+                for (int i = 1; i < keyHeaders.length; i++) {
+                    if (B3Propagator.matches(headerKey, keyHeaders[i])) {
+                        values[i] = entry.getValue();
+                        break;
+                    }
+                }
+            }
+        }
+        return first == null ? null : new HeaderValues(values);
+    }
+
+    /**
+     * @return the number of extractions answered from the cache
+     */
+    public long hits() {
+        return cache.hits();
+    }
+
+    /**
+     * @return the number of extractions passed on to the delegate for lack of a cached context, not counting the
+     * carriers without the first key header
+     */
+    public long misses() {
+        return cache.misses();
+    }
+
+    /**
+     * @return the number of cached contexts
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * @return the maximum number of cached contexts, which is the given capacity rounded down to a power of two sets
+     * of 8 slots
+     */
+    public int capacity() {
+        return cache.capacity();
+    }
+
+    /**
+     * Drops all cached contexts, keeping the hit and miss counts.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * The values of several key headers, absent ones being null.
+     */
+    private static final class HeaderValues {
+        private final String[] values;
+        private final int hash;
+
+        HeaderValues(String[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof HeaderValues && hash == ((HeaderValues) o).hash
+                    && Arrays.equals(values, ((HeaderValues) o).values);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded concurrent cache with CLOCK (second chance) eviction, laid out as a set-associative table: a key can
+ * only live in the few slots of the set its hash selects, and each set runs its own CLOCK over them.
+ *
+ * Lookups never lock nor allocate: they scan the slots of one set and set the reference bit of the entry they find,
+ * only if not set yet. Insertions lock one of a few stripes of sets, and sweep the set for a slot that is empty or
+ * whose reference bit is clear, clearing the bits they pass.
+ *
+ * Hits and misses are counted atomically in cells picked by the current thread, each padded to its own cache lines,
+ * so that the threads reading a hot key do not all contend on one counter.
+ */
+final class ClockCache<K, V> {
+    private static final int WAYS = 8;
+    private static final int MAX_STRIPES = 16;
+    private static final int COUNTER_CELLS = 16;
+    // Longs per cell: hits and misses, then padding up to 128 bytes.
+    private static final int CELL_SIZE = 16;
+
+    private final AtomicReferenceArray<Entry<K, V>> slots;
+    private final int ways;
+    private final int setMask;
+    private final byte[] hands;
+    private final Object[] stripes;
+    private final AtomicLongArray counters = new AtomicLongArray(COUNTER_CELLS * CELL_SIZE);
+
+    ClockCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity needs to be larger than 0");
+        }
+        this.ways = Math.min(WAYS, capacity);
+        int sets = Integer.highestOneBit(capacity / ways);
+        this.setMask = sets - 1;
+        this.slots = new AtomicReferenceArray<>(sets * ways);
+        this.hands = new byte[sets];
+        this.stripes = new Object[Math.min(MAX_STRIPES, sets)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * @return the cached value, or null
+     */
+    V get(K key) {
+        int hash = hash(key);
+        int set = hash & setMask;
+        for (int i = set * ways, end = i + ways; i < end; i++) {
+            Entry<K, V> entry = slots.get(i);
+            if (entry != null && entry.hash == hash && entry.key.equals(key)) {
+                if (!entry.referenced) {
+                    entry.referenced = true;
+                }
+                counters.getAndIncrement(cell());
+                return entry.value;
+            }
+        }
+        counters.getAndIncrement(cell() + 1);
+        return null;
+    }
+
+    void put(K key, V value) {
+        int hash = hash(key);
+        int set = hash & setMask;
+        int base = set * ways;
+        synchronized (stripes[set & (stripes.length - 1)]) {
+            for (int i = base; i < base + ways; i++) {
+                Entry<K, V> entry = slots.get(i);
+                if (entry != null && entry.hash == hash && entry.key.equals(key)) {
+                    return;
+                }
+            }
+            int hand = hands[set];
+            while (true) {
+                Entry<K, V> current = slots.get(base + hand);
+                if (current == null || !current.referenced) {
+                    break;
+                }
+                current.referenced = false;
+                hand = hand + 1 == ways ? 0 : hand + 1;
+            }
+            slots.set(base + hand, new Entry<>(hash, key, value));
+            hands[set] = (byte) (hand + 1 == ways ? 0 : hand + 1);
+        }
+    }
+
+    long hits() {
+        return sum(0);
+    }
+
+    long misses() {
+        return sum(1);
+    }
+
+    /**
+     * @return the number of cached values, counted without locking
+     */
+    int size() {
+        int size = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    int capacity() {
+        return slots.length();
+    }
+
+    void clear() {
+        for (int set = 0; set <= setMask; set++) {
+            synchronized (stripes[set & (stripes.length - 1)]) {
+                for (int i = set * ways; i < (set + 1) * ways; i++) {
+                    slots.set(i, null);
+                }
+            }
+        }
+    }
+
+    private long sum(int offset) {
+        long sum = 0;
+        for (int i = offset; i < counters.length(); i += CELL_SIZE) {
+            sum += counters.get(i);
+        }
+        return sum;
+    }
+
+    private static int cell() {
+        return ((int) Thread.currentThread().getId() & (COUNTER_CELLS - 1)) * CELL_SIZE;
+    }
+
+    private static int hash(Object key) {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Entry<K, V> {
+        final int hash;
+        final K key;
+        final V value;
+        volatile boolean referenced;
+
+        Entry(int hash, K key, V value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
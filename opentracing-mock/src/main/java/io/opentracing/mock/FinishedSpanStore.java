@@ -0,0 +1,478 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import io.opentracing.tag.Tags;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The store behind {@link MockTracer#finishedSpans()}.
+ *
+ * Finished spans are appended to one of several shards, picked by the finishing thread, so that threads
+ * finishing spans concurrently do not serialize on a single monitor. Every span is given a sequence number
+ * while its shard is locked, which keeps each shard ordered and lets the shards be merged back into the
+ * global finish order.
+ *
+ * When bounded, the store evicts according to its {@link MockTracer.EvictionPolicy} once it holds
+ * {@code capacity} spans. The oldest span is found by scanning the (volatile) head sequence of every shard
+ * without locking, and only the shard holding it is locked to evict it.
+ *
+ * Each shard also keeps a {@link SpanIndex} of its spans, so that queries only copy the matching spans.
+ * Tag keys are indexed the first time they are queried.
+ */
+final class FinishedSpanStore {
+    private static final int MAX_SHARDS = 64;
+
+    static final Comparator<MockSpan> FINISH_ORDER = new Comparator<MockSpan>() {
+        @Override
+        public int compare(MockSpan o1, MockSpan o2) {
+            return Long.compare(o1.finishSequence, o2.finishSequence);
+        }
+    };
+
+    private final Shard[] shards;
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final int capacity;
+    private final MockTracer.EvictionPolicy evictionPolicy;
+    private final AtomicInteger retained = new AtomicInteger(); // only maintained when bounded.
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong evictedErrors = new AtomicLong();
+
+    // Read by append() while holding a shard lock; replaced (copy on write) while holding tagKeyLock.
+    private volatile String[] indexedTagKeys = new String[0];
+    private final Object tagKeyLock = new Object();
+
+    FinishedSpanStore() {
+        this(Integer.MAX_VALUE, MockTracer.EvictionPolicy.DROP_OLDEST);
+    }
+
+    FinishedSpanStore(int capacity, MockTracer.EvictionPolicy evictionPolicy) {
+        this(capacity, evictionPolicy, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    FinishedSpanStore(int capacity, MockTracer.EvictionPolicy evictionPolicy, int minShards) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity needs to be larger than 0");
+        }
+        if (evictionPolicy == null) {
+            throw new NullPointerException("evictionPolicy");
+        }
+        int shardCount = 1;
+        while (shardCount < minShards && shardCount < MAX_SHARDS) {
+            shardCount <<= 1;
+        }
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            this.shards[i] = new Shard();
+        }
+        this.mask = shardCount - 1;
+        this.capacity = capacity;
+        this.evictionPolicy = evictionPolicy;
+    }
+
+    private boolean isBounded() {
+        return capacity != Integer.MAX_VALUE;
+    }
+
+    void add(MockSpan span) {
+        if (!isBounded()) {
+            append(span, false);
+            return;
+        }
+
+        boolean keepErrors = evictionPolicy == MockTracer.EvictionPolicy.KEEP_ERRORS;
+        boolean isError = keepErrors && isError(span);
+        if (retained.incrementAndGet() <= capacity) {
+            append(span, isError);
+        } else if (evictionPolicy == MockTracer.EvictionPolicy.DROP_NEWEST) {
+            retained.decrementAndGet();
+            recordEviction(span);
+        } else {
+            append(span, isError);
+            evictOldest(keepErrors);
+        }
+    }
+
+    private void append(MockSpan span, boolean isError) {
+        Shard shard = shards[(int) Thread.currentThread().getId() & mask];
+        synchronized (shard) {
+            span.finishSequence = sequence.incrementAndGet();
+            (isError ? shard.errors : shard.spans).add(span);
+            shard.index.add(span, indexedTagKeys);
+            shard.update();
+        }
+    }
+
+    private void evictOldest(boolean keepErrors) {
+        while (true) {
+            boolean fromErrors = false;
+            Shard victim = oldest(false);
+            if (victim == null && keepErrors) {
+                fromErrors = true;
+                victim = oldest(true);
+            }
+            if (victim == null) {
+                if (retained.get() <= capacity) {
+                    return; // drained or cleared concurrently.
+                }
+                // The unlocked scan can miss every span while they move between shards, look again.
+                Thread.yield();
+                continue;
+            }
+
+            MockSpan span;
+            synchronized (victim) {
+                SpanQueue queue = fromErrors ? victim.errors : victim.spans;
+                if (queue.size() == 0) {
+                    continue; // lost a race with another eviction, look again.
+                }
+                span = queue.removeFirst();
+                victim.index.remove(span);
+                victim.update();
+            }
+            retained.decrementAndGet();
+            recordEviction(span);
+            return;
+        }
+    }
+
+    private Shard oldest(boolean errors) {
+        Shard oldest = null;
+        long oldestSequence = Long.MAX_VALUE;
+        for (Shard shard : shards) {
+            long first = errors ? shard.oldestError : shard.oldestSpan;
+            if (first < oldestSequence) {
+                oldestSequence = first;
+                oldest = shard;
+            }
+        }
+        return oldest;
+    }
+
+    private void recordEviction(MockSpan span) {
+        evicted.incrementAndGet();
+        if (isError(span)) {
+            evictedErrors.incrementAndGet();
+        }
+    }
+
+    private static boolean isError(MockSpan span) {
+        return Boolean.TRUE.equals(span.getTag(Tags.ERROR.getKey()));
+    }
+
+    /**
+     * @return the number of stored spans, without locking any shard.
+     */
+    int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.size;
+        }
+        return size;
+    }
+
+    long evictedCount() {
+        return evicted.get();
+    }
+
+    long evictedErrorCount() {
+        return evictedErrors.get();
+    }
+
+    /**
+     * @return a copy of all stored spans, in the order they finished.
+     */
+    List<MockSpan> snapshot() {
+        // Spans finishing while the shards are copied are left out, so that the copy is a prefix of the finish
+        // order rather than missing a span finished before one it holds.
+        long bound = sequence.get();
+        List<MockSpan> result = new ArrayList<>();
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                shard.spans.copyTo(result, 0, shard.spans.firstAfter(bound));
+                shard.errors.copyTo(result, 0, shard.errors.firstAfter(bound));
+            }
+        }
+        // Every shard queue is already sorted, which the merge sort detects as ascending runs.
+        Collections.sort(result, FINISH_ORDER);
+        return result;
+    }
+
+    List<MockSpan> byTrace(long traceId) {
+        List<MockSpan> result = new ArrayList<>();
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                shard.index.copyByTrace(traceId, result);
+            }
+        }
+        return sorted(result);
+    }
+
+    List<MockSpan> byOperation(String operationName) {
+        List<MockSpan> result = new ArrayList<>();
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                shard.index.copyByOperation(operationName, result);
+            }
+        }
+        return sorted(result);
+    }
+
+    List<MockSpan> byParent(long parentId) {
+        List<MockSpan> result = new ArrayList<>();
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                shard.index.copyByParent(parentId, result);
+            }
+        }
+        return sorted(result);
+    }
+
+    List<MockSpan> byTag(String key, Object value) {
+        indexTag(key);
+        List<MockSpan> result = new ArrayList<>();
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                shard.index.copyByTag(key, value, result);
+            }
+        }
+        return sorted(result);
+    }
+
+    /**
+     * Starts indexing a tag key, indexing the spans already stored under it.
+     */
+    private void indexTag(String key) {
+        synchronized (tagKeyLock) {
+            String[] keys = indexedTagKeys;
+            for (String indexed : keys) {
+                if (indexed.equals(key)) {
+                    return;
+                }
+            }
+            String[] newKeys = Arrays.copyOf(keys, keys.length + 1);
+            newKeys[keys.length] = key;
+            // Published before any shard is indexed: a span is then either appended before its shard is
+            // indexed, or sees the new key when it is appended.
+            indexedTagKeys = newKeys;
+
+            List<MockSpan> spans = new ArrayList<>();
+            for (Shard shard : shards) {
+                synchronized (shard) {
+                    shard.spans.copyTo(spans, 0, shard.spans.size());
+                    shard.errors.copyTo(spans, 0, shard.errors.size());
+                    shard.index.indexTag(key, sorted(spans));
+                }
+                spans.clear();
+            }
+        }
+    }
+
+    /**
+     * Passes the stored spans finished after {@code cursor} to the consumer, in finish order.
+     *
+     * Only the spans past the cursor are copied while a shard is locked, and the consumer is called once
+     * no lock is held.
+     *
+     * @return the cursor to pass to the next call
+     */
+    long since(long cursor, MockTracer.SpanConsumer consumer) {
+        // A span whose sequence is not above this bound is already in its shard by the time the shard is
+        // locked below, so returning it as the next cursor never skips a span.
+        long bound = sequence.get();
+        if (bound <= cursor) {
+            return cursor;
+        }
+        List<MockSpan> result = new ArrayList<>();
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                shard.spans.copyTo(result, shard.spans.firstAfter(cursor), shard.spans.firstAfter(bound));
+                shard.errors.copyTo(result, shard.errors.firstAfter(cursor), shard.errors.firstAfter(bound));
+            }
+        }
+        consume(result, consumer);
+        return bound;
+    }
+
+    /**
+     * Removes the stored spans and passes them to the consumer, in finish order.
+     *
+     * @return the number of drained spans
+     */
+    int drain(MockTracer.SpanConsumer consumer) {
+        long bound = sequence.get();
+        List<MockSpan> result = new ArrayList<>();
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                int from = result.size();
+                shard.spans.removeTo(result, shard.spans.firstAfter(bound));
+                shard.errors.removeTo(result, shard.errors.firstAfter(bound));
+                if (shard.spans.size() + shard.errors.size() == 0) {
+                    shard.index.clear();
+                } else {
+                    for (int i = from; i < result.size(); i++) {
+                        shard.index.remove(result.get(i));
+                    }
+                }
+                shard.update();
+            }
+        }
+        if (isBounded()) {
+            retained.addAndGet(-result.size());
+        }
+        consume(result, consumer);
+        return result.size();
+    }
+
+    void clear() {
+        for (Shard shard : shards) {
+            int removed;
+            synchronized (shard) {
+                removed = shard.spans.size() + shard.errors.size();
+                shard.spans.clear();
+                shard.errors.clear();
+                shard.index.clear();
+                shard.update();
+            }
+            if (isBounded()) {
+                retained.addAndGet(-removed);
+            }
+        }
+        evicted.set(0);
+        evictedErrors.set(0);
+    }
+
+    private static List<MockSpan> sorted(List<MockSpan> spans) {
+        // Every shard contributes an already sorted run, which the merge sort detects.
+        Collections.sort(spans, FINISH_ORDER);
+        return spans;
+    }
+
+    private static void consume(List<MockSpan> spans, MockTracer.SpanConsumer consumer) {
+        sorted(spans);
+        for (MockSpan span : spans) {
+            consumer.accept(span);
+        }
+    }
+
+    private static final class Shard {
+        final SpanQueue spans = new SpanQueue();
+        final SpanQueue errors = new SpanQueue(); // only used by EvictionPolicy.KEEP_ERRORS.
+        final SpanIndex index = new SpanIndex();
+
+        // Read without locking by size() and by the eviction scan.
+        volatile int size;
+        volatile long oldestSpan = Long.MAX_VALUE;
+        volatile long oldestError = Long.MAX_VALUE;
+
+        // Keeps the monitors of neighbouring shards off the same cache line.
+        long p1, p2, p3, p4, p5, p6, p7;
+
+        void update() {
+            size = spans.size() + errors.size();
+            oldestSpan = spans.firstSequence();
+            oldestError = errors.firstSequence();
+        }
+    }
+
+    /**
+     * A growable ring buffer of spans, ordered by finish sequence.
+     */
+    static final class SpanQueue {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private MockSpan[] elements = new MockSpan[INITIAL_CAPACITY];
+        private int head;
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        MockSpan get(int index) {
+            return elements[(head + index) & (elements.length - 1)];
+        }
+
+        void add(MockSpan span) {
+            if (size == elements.length) {
+                MockSpan[] grown = new MockSpan[elements.length << 1];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = get(i);
+                }
+                elements = grown;
+                head = 0;
+            }
+            elements[(head + size) & (elements.length - 1)] = span;
+            size++;
+        }
+
+        MockSpan removeFirst() {
+            MockSpan span = elements[head];
+            elements[head] = null;
+            head = (head + 1) & (elements.length - 1);
+            size--;
+            return span;
+        }
+
+        /**
+         * @return the sequence of the first span, or {@link Long#MAX_VALUE} if empty.
+         */
+        long firstSequence() {
+            return size == 0 ? Long.MAX_VALUE : elements[head].finishSequence;
+        }
+
+        /**
+         * @return the index of the first span whose sequence is above {@code sequence}.
+         */
+        int firstAfter(long sequence) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (get(mid).finishSequence <= sequence) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        void copyTo(List<MockSpan> target, int from, int to) {
+            for (int i = from; i < to; i++) {
+                target.add(get(i));
+            }
+        }
+
+        void removeTo(List<MockSpan> target, int count) {
+            for (int i = 0; i < count; i++) {
+                target.add(removeFirst());
+            }
+        }
+
+        void clear() {
+            elements = new MockSpan[INITIAL_CAPACITY];
+            head = 0;
+            size = 0;
+        }
+    }
+}
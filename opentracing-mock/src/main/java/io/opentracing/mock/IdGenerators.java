@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The implementations behind the {@link MockTracer.IdGenerator} constants.
+ */
+final class IdGenerators {
+    // A simple-as-possible (consecutive for repeatability) id source, shared by all MockTracers so that ids are
+    // unique across them.
+    private static final AtomicLong nextId = new AtomicLong(0);
+
+    private IdGenerators() {
+    }
+
+    static final class Sequential implements MockTracer.IdGenerator {
+        @Override
+        public long nextTraceIdHigh() {
+            return 0;
+        }
+
+        @Override
+        public long nextTraceId() {
+            return nextId.incrementAndGet();
+        }
+
+        @Override
+        public long nextSpanId() {
+            return nextId.incrementAndGet();
+        }
+    }
+
+    /**
+     * Hands out ids from a block reserved per thread, so that the shared counter is only touched once per block.
+     */
+    static final class ThreadBlocks implements MockTracer.IdGenerator {
+        static final int BLOCK_SIZE = 1024;
+
+        private final ThreadLocal<long[]> blocks = new ThreadLocal<long[]>() {
+            @Override
+            protected long[] initialValue() {
+                return new long[2]; // {next, limit}, empty until the first id is needed.
+            }
+        };
+
+        @Override
+        public long nextTraceIdHigh() {
+            return 0;
+        }
+
+        @Override
+        public long nextTraceId() {
+            return next();
+        }
+
+        @Override
+        public long nextSpanId() {
+            return next();
+        }
+
+        private long next() {
+            long[] block = blocks.get();
+            if (block[0] == block[1]) {
+                block[1] = nextId.addAndGet(BLOCK_SIZE) + 1;
+                block[0] = block[1] - BLOCK_SIZE;
+            }
+            return block[0]++;
+        }
+    }
+
+    static final class Random implements MockTracer.IdGenerator {
+        private final boolean traceId128;
+
+        Random(boolean traceId128) {
+            this.traceId128 = traceId128;
+        }
+
+        @Override
+        public long nextTraceIdHigh() {
+            return traceId128 ? ThreadLocalRandom.current().nextLong() : 0;
+        }
+
+        @Override
+        public long nextTraceId() {
+            return nonZero();
+        }
+
+        @Override
+        public long nextSpanId() {
+            return nonZero();
+        }
+
+        private static long nonZero() {
+            long id;
+            do {
+                id = ThreadLocalRandom.current().nextLong();
+            } while (id == 0);
+            return id;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import java.util.Arrays;
+
+/**
+ * Baggage items kept in the form they were extracted in, and only decoded the first time they are read. Child
+ * contexts share the instance, so that a service that never reads baggage does not decode it, even for the Spans it
+ * starts from an extracted context.
+ *
+ * Racing threads may both decode the items; either result is kept.
+ */
+abstract class LazyBaggage {
+    private volatile BaggageMap decoded;
+
+    final BaggageMap get() {
+        BaggageMap baggage = decoded;
+        if (baggage == null) {
+            baggage = decode();
+            decoded = baggage;
+        }
+        return baggage;
+    }
+
+    final boolean isDecoded() {
+        return decoded != null;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the items turn out to be malformed
+     */
+    abstract BaggageMap decode();
+
+    /**
+     * Baggage items extracted from TextMap entries, kept as the entries' keys (with their prefix) and values.
+     */
+    static final class PrefixedEntries extends LazyBaggage {
+        private final int prefixLength;
+        private String[] keysAndValues = new String[8];
+        private int count;
+
+        PrefixedEntries(String prefix) {
+            this.prefixLength = prefix.length();
+        }
+
+        void add(String prefixedKey, String value) {
+            if (2 * count == keysAndValues.length) {
+                keysAndValues = Arrays.copyOf(keysAndValues, 2 * keysAndValues.length);
+            }
+            keysAndValues[2 * count] = prefixedKey;
+            keysAndValues[2 * count + 1] = value;
+            count++;
+        }
+
+        @Override
+        BaggageMap decode() {
+            String[] decoded = new String[2 * count];
+            for (int i = 0; i < count; i++) {
+                decoded[2 * i] = keysAndValues[2 * i].substring(prefixLength);
+                decoded[2 * i + 1] = keysAndValues[2 * i + 1];
+            }
+            return BaggageMap.of(decoded, count);
+        }
+    }
+}
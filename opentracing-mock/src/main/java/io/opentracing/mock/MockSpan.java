@@ -17,13 +17,13 @@ import io.opentracing.References;
 import io.opentracing.Span;
 import io.opentracing.SpanContext;
 import io.opentracing.tag.Tag;
+import io.opentracing.util.HexCodec;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * MockSpans are created via MockTracer.buildSpan(...), but they are also returned via calls to
@@ -32,9 +32,6 @@ import java.util.concurrent.atomic.AtomicLong;
  * @see MockTracer#finishedSpans()
  */
 public final class MockSpan implements Span {
-    // A simple-as-possible (consecutive for repeatability) id generator.
-    private static AtomicLong nextId = new AtomicLong(0);
-
     private final MockTracer mockTracer;
     private MockContext context;
     private final long parentId; // 0 if there's no parent.
@@ -45,6 +42,7 @@ public final class MockSpan implements Span {
     private final List<LogEntry> logEntries = new ArrayList<>();
     private String operationName;
     private final List<Reference> references;
+    long finishSequence; // assigned by FinishedSpanStore, 0 until finished.
 
     private final List<RuntimeException> errors = new ArrayList<>();
 
@@ -85,6 +83,24 @@ public final class MockSpan implements Span {
     public Map<String, Object> tags() {
         return new HashMap<>(this.tags);
     }
+
+    /**
+     * Not synchronized, as it is only called on finished spans (whose tags can no longer change) while
+     * {@link FinishedSpanStore} holds a lock that a finishing thread may be waiting for.
+     *
+     * @return the value of a single tag, without copying all of them.
+     */
+    Object getTag(String key) {
+        return this.tags.get(key);
+    }
+
+    /**
+     * @return the traceId of this Span, not synchronized for the same reason as {@link #getTag(String)}.
+     */
+    long traceId() {
+        return this.context.traceId();
+    }
+
     /**
      * @return a copy of all log entries added to this Span.
      */
@@ -110,7 +126,7 @@ public final class MockSpan implements Span {
 
     @Override
     public void finish() {
-        this.finish(nowMicros());
+        this.finish(mockTracer.clock().nowMicros());
     }
 
     @Override
@@ -150,7 +166,7 @@ public final class MockSpan implements Span {
 
     @Override
     public final Span log(Map<String, ?> fields) {
-        return log(nowMicros(), fields);
+        return log(mockTracer.clock().nowMicros(), fields);
     }
 
     @Override
@@ -162,7 +178,7 @@ public final class MockSpan implements Span {
 
     @Override
     public MockSpan log(String event) {
-        return this.log(nowMicros(), event);
+        return this.log(mockTracer.clock().nowMicros(), event);
     }
 
     @Override
@@ -189,42 +205,155 @@ public final class MockSpan implements Span {
      * between processes).
      */
     public static final class MockContext implements SpanContext {
+        private final long traceIdHigh;
         private final long traceId;
-        private final Map<String, String> baggage;
+        private final BaggageMap baggage;
+        private final LazyBaggage lazyBaggage;
         private final long spanId;
+        private final String traceState;
+        private volatile Encoding encodings;
 
         /**
          * A package-protected constructor to create a new MockContext. This should only be called by MockSpan and/or
          * MockTracer.
          *
-         * @param baggage the MockContext takes ownership of the baggage parameter
+         * @param baggage the baggage items, copied into an immutable map that child contexts share
          *
          * @see MockContext#withBaggageItem(String, String)
          */
         public MockContext(long traceId, long spanId, Map<String, String> baggage) {
-            this.baggage = baggage;
+            this(0, traceId, spanId, baggage);
+        }
+
+        /**
+         * A package-protected constructor to create a new MockContext with a 128-bit trace id.
+         *
+         * @param traceIdHigh the upper 64 bits of the trace id, 0 for a 64-bit trace id
+         * @param traceId the lower 64 bits of the trace id
+         *
+         * @see MockContext#MockContext(long, long, Map)
+         */
+        public MockContext(long traceIdHigh, long traceId, long spanId, Map<String, String> baggage) {
+            this(traceIdHigh, traceId, spanId, baggage, null);
+        }
+
+        /**
+         * A package-protected constructor to create a new MockContext carrying vendor trace state.
+         *
+         * @param traceState the W3C {@code tracestate} header received with this context, passed on as is to its
+         *                   children and on injection, or null
+         *
+         * @see MockTracer.Propagator#TRACE_CONTEXT
+         */
+        public MockContext(long traceIdHigh, long traceId, long spanId, Map<String, String> baggage,
+                           String traceState) {
+            this.baggage = BaggageMap.copyOf(baggage);
+            this.lazyBaggage = null;
+            this.traceIdHigh = traceIdHigh;
             this.traceId = traceId;
             this.spanId = spanId;
+            this.traceState = traceState;
+        }
+
+        /**
+         * Creates a MockContext whose baggage items are only decoded when first read.
+         */
+        MockContext(long traceIdHigh, long traceId, long spanId, LazyBaggage lazyBaggage, String traceState) {
+            this.baggage = null;
+            this.lazyBaggage = lazyBaggage;
+            this.traceIdHigh = traceIdHigh;
+            this.traceId = traceId;
+            this.spanId = spanId;
+            this.traceState = traceState;
+        }
+
+        public String getBaggageItem(String key) { return baggage().get(key); }
+
+        /**
+         * @return the decimal trace id, or the 32 lowercase hex digits of a 128-bit trace id
+         */
+        public String toTraceId() {
+            if (traceIdHigh == 0) {
+                return String.valueOf(traceId);
+            }
+            return HexCodec.toHex(traceIdHigh, traceId);
         }
 
-        public String getBaggageItem(String key) { return this.baggage.get(key); }
-        public String toTraceId() { return String.valueOf(traceId); }
         public String toSpanId() { return String.valueOf(spanId); }
         public long traceId() { return traceId; }
+
+        /**
+         * @return the upper 64 bits of a 128-bit trace id, or 0 for a 64-bit trace id
+         *
+         * @see MockTracer.IdGenerator#RANDOM_128
+         */
+        public long traceIdHigh() { return traceIdHigh; }
+
         public long spanId() { return spanId; }
 
+        /**
+         * @return the W3C {@code tracestate} this context was extracted with, or null
+         */
+        public String traceState() { return traceState; }
+
         /**
          * Create and return a new (immutable) MockContext with the added baggage item.
+         *
+         * The new MockContext shares all but the path to the added item with this one, rather than copying the
+         * baggage.
          */
         public MockContext withBaggageItem(String key, String val) {
-            Map<String, String> newBaggage = new HashMap<>(this.baggage);
-            newBaggage.put(key, val);
-            return new MockContext(this.traceId, this.spanId, newBaggage);
+            return new MockContext(this.traceIdHigh, this.traceId, this.spanId, baggage().with(key, val),
+                    this.traceState);
         }
 
         @Override
         public Iterable<Map.Entry<String, String>> baggageItems() {
-            return baggage.entrySet();
+            return baggage().entrySet();
+        }
+
+        BaggageMap baggage() {
+            return baggage != null ? baggage : lazyBaggage.get();
+        }
+
+        /**
+         * @return the baggage items as extracted, whether decoded yet or not, or null if they were never encoded
+         */
+        LazyBaggage lazyBaggage() {
+            return lazyBaggage;
+        }
+
+        /**
+         * @return what the given propagator cached with {@link #cacheEncoding}, or null
+         */
+        Object encoding(Object propagator) {
+            for (Encoding encoding = encodings; encoding != null; encoding = encoding.next) {
+                if (encoding.propagator == propagator) {
+                    return encoding.value;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Caches the encoded form of this (immutable) context for the given propagator, so that injecting it again,
+         * e.g. into every call a request fans out to, only copies it. Racing threads may both encode the context;
+         * either result is kept.
+         */
+        void cacheEncoding(Object propagator, Object value) {
+            this.encodings = new Encoding(propagator, value, this.encodings);
+        }
+
+        private static final class Encoding {
+            final Object propagator;
+            final Object value;
+            final Encoding next;
+
+            Encoding(Object propagator, Object value, Encoding next) {
+                this.propagator = propagator;
+                this.value = value;
+                this.next = next;
+            }
         }
     }
 
@@ -295,11 +424,21 @@ public final class MockSpan implements Span {
         MockContext parent = findPreferredParentRef(this.references);
         if (parent == null) {
             // We're a root Span.
-            this.context = new MockContext(nextId(), nextId(), new HashMap<String, String>());
+            MockTracer.IdGenerator ids = tracer.idGenerator();
+            this.context = new MockContext(ids.nextTraceIdHigh(), ids.nextTraceId(), ids.nextSpanId(),
+                    BaggageMap.EMPTY);
             this.parentId = 0;
         } else {
             // We're a child Span.
-            this.context = new MockContext(parent.traceId, nextId(), mergeBaggages(this.references));
+            long spanId = tracer.idGenerator().nextSpanId();
+            if (this.references.size() == 1 && parent.lazyBaggage != null) {
+                // Pass the baggage of an extracted context on without decoding it.
+                this.context = new MockContext(parent.traceIdHigh, parent.traceId, spanId, parent.lazyBaggage,
+                        parent.traceState);
+            } else {
+                this.context = new MockContext(parent.traceIdHigh, parent.traceId, spanId,
+                        mergeBaggages(this.references), parent.traceState);
+            }
             this.parentId = parent.spanId;
         }
     }
@@ -316,24 +455,15 @@ public final class MockSpan implements Span {
         return references.get(0).getContext();
     }
 
-    private static Map<String, String> mergeBaggages(List<Reference> references) {
-        Map<String, String> baggage = new HashMap<>();
+    private static BaggageMap mergeBaggages(List<Reference> references) {
+        // With a single parent (or a single one carrying baggage), its baggage is shared as is.
+        BaggageMap baggage = BaggageMap.EMPTY;
         for(Reference ref : references) {
-            if(ref.getContext().baggage != null) {
-                baggage.putAll(ref.getContext().baggage);
-            }
+            baggage = baggage.withAll(ref.getContext().baggage());
         }
         return baggage;
     }
 
-    static long nextId() {
-        return nextId.addAndGet(1);
-    }
-
-    static long nowMicros() {
-        return System.currentTimeMillis() * 1000;
-    }
-
     private synchronized void finishedCheck(String format, Object... args) {
         if (finished) {
             RuntimeException ex = new IllegalStateException(String.format(format, args));
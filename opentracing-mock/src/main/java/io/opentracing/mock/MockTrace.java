@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable tree of the finish()ed MockSpans of one trace, linked through {@link MockSpan#parentId()}.
+ *
+ * Spans whose parent has not finished yet (e.g. children outliving a parent that finishes late) are not dropped:
+ * each of them is the top of an orphan subtree, which joins the tree once the parent has finished and the trace is
+ * assembled again.
+ *
+ * @see MockTracer#trace(long)
+ */
+public final class MockTrace {
+    private final long traceId;
+    private final Node root;
+    private final List<Node> orphans;
+    private final List<MockSpan> spans;
+    private final Map<Long, Node> nodes;
+
+    /**
+     * @param spans the spans of the trace, in the order they finished
+     */
+    MockTrace(long traceId, List<MockSpan> spans) {
+        this.traceId = traceId;
+        this.spans = Collections.unmodifiableList(spans);
+        this.nodes = new HashMap<>(spans.size() * 4 / 3 + 1);
+        for (MockSpan span : spans) {
+            nodes.put(span.context().spanId(), new Node(span));
+        }
+
+        Node root = null;
+        List<Node> orphans = new ArrayList<>();
+        for (MockSpan span : spans) {
+            Node node = nodes.get(span.context().spanId());
+            Node parent = span.parentId() == 0 ? null : nodes.get(span.parentId());
+            if (parent != null) {
+                node.parent = parent;
+                parent.children.add(node);
+            } else if (span.parentId() == 0 && root == null) {
+                root = node;
+            } else {
+                orphans.add(node);
+            }
+        }
+        this.root = root;
+        this.orphans = Collections.unmodifiableList(orphans);
+
+        // Breadth first rather than recursive, as traces can be deep.
+        ArrayDeque<Node> pending = new ArrayDeque<>();
+        if (root != null) {
+            pending.add(root);
+        }
+        pending.addAll(orphans);
+        while (!pending.isEmpty()) {
+            Node node = pending.poll();
+            node.depth = node.parent == null ? 0 : node.parent.depth + 1;
+            pending.addAll(node.children);
+        }
+        for (Node node : nodes.values()) {
+            node.children = Collections.unmodifiableList(node.children);
+        }
+    }
+
+    public long traceId() {
+        return traceId;
+    }
+
+    /**
+     * @return the root Span of this trace (the one without a parent), or null if it has not finished yet.
+     */
+    public Node root() {
+        return root;
+    }
+
+    /**
+     * @return the Spans whose parent has not finished yet, each with the subtree below it, in the order they finished.
+     */
+    public List<Node> orphans() {
+        return orphans;
+    }
+
+    /**
+     * @return all the finish()ed Spans of this trace, in the order they finished.
+     */
+    public List<MockSpan> spans() {
+        return spans;
+    }
+
+    /**
+     * @return the node of the given Span, or null if it is not a finish()ed Span of this trace.
+     */
+    public Node node(long spanId) {
+        return nodes.get(spanId);
+    }
+
+    public int size() {
+        return spans.size();
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "traceId:" + traceId +
+                ", spans:" + spans.size() +
+                ", orphans:" + orphans.size() +
+                "}";
+    }
+
+    /**
+     * A Span within a {@link MockTrace}, with its parent and children.
+     */
+    public static final class Node {
+        private final MockSpan span;
+        private Node parent;
+        private List<Node> children = new ArrayList<>(2);
+        private int depth;
+
+        Node(MockSpan span) {
+            this.span = span;
+        }
+
+        public MockSpan span() {
+            return span;
+        }
+
+        /**
+         * @return the parent of this Span, or null for the root and the orphans of the trace.
+         */
+        public Node parent() {
+            return parent;
+        }
+
+        /**
+         * @return the children of this Span, in the order they finished.
+         */
+        public List<Node> children() {
+            return children;
+        }
+
+        /**
+         * @return the distance to the root of the trace, or to the orphan this Span descends from.
+         */
+        public int depth() {
+            return depth;
+        }
+
+        @Override
+        public String toString() {
+            return "{" +
+                    "span:" + span +
+                    ", depth:" + depth +
+                    ", children:" + children.size() +
+                    "}";
+        }
+    }
+}
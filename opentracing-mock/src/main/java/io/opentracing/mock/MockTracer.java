@@ -15,16 +15,12 @@ package io.opentracing.mock;
 
 import io.opentracing.propagation.BinaryExtract;
 import io.opentracing.propagation.BinaryInject;
+import io.opentracing.propagation.KeyedTextMapExtract;
 import io.opentracing.propagation.TextMapExtract;
 import io.opentracing.propagation.TextMapInject;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -39,6 +35,10 @@ import io.opentracing.propagation.Binary;
 import io.opentracing.propagation.Format;
 import io.opentracing.propagation.TextMap;
 import io.opentracing.tag.Tag;
+import io.opentracing.tag.Tags;
+import io.opentracing.util.Clock;
+import io.opentracing.util.MillisClock;
+import io.opentracing.util.TraceParent;
 import io.opentracing.util.ThreadLocalScopeManager;
 
 /**
@@ -50,10 +50,12 @@ import io.opentracing.util.ThreadLocalScopeManager;
  * The MockTracerTest has simple usage examples.
  */
 public class MockTracer implements Tracer {
-    private final List<MockSpan> finishedSpans = new ArrayList<>();
+    private final FinishedSpanStore finishedSpans;
     private final Propagator propagator;
     private final ScopeManager scopeManager;
-    private boolean isClosed;
+    private final Clock clock;
+    private final IdGenerator idGenerator;
+    private volatile boolean isClosed;
 
     public MockTracer() {
         this(new ThreadLocalScopeManager(), Propagator.TEXT_MAP);
@@ -64,8 +66,7 @@ public class MockTracer implements Tracer {
     }
 
     public MockTracer(ScopeManager scopeManager, Propagator propagator) {
-        this.scopeManager = scopeManager;
-        this.propagator = propagator;
+        this(new Builder().scopeManager(scopeManager).propagator(propagator));
     }
 
     /**
@@ -76,12 +77,111 @@ public class MockTracer implements Tracer {
     }
 
     /**
-     * Clear the finishedSpans() queue.
+     * Create a new MockTracer with the options of the given builder, e.g. from a subclass.
+     *
+     * @see Builder#build()
+     */
+    protected MockTracer(Builder builder) {
+        this.scopeManager = builder.scopeManager != null ? builder.scopeManager : new ThreadLocalScopeManager();
+        this.propagator = builder.propagator;
+        this.finishedSpans = new FinishedSpanStore(builder.maxFinishedSpans, builder.evictionPolicy);
+        this.clock = builder.clock != null ? builder.clock : new MillisClock();
+        this.idGenerator = builder.idGenerator;
+    }
+
+    /**
+     * Builds a MockTracer with options beyond the ScopeManager and Propagator of its constructors.
+     *
+     * <pre><code>
+     * MockTracer tracer = new MockTracer.Builder()
+     *         .maxFinishedSpans(10000, MockTracer.EvictionPolicy.KEEP_ERRORS)
+     *         .clock(clock)
+     *         .idGenerator(MockTracer.IdGenerator.RANDOM_128)
+     *         .build();
+     * </code></pre>
+     */
+    public static final class Builder {
+        private ScopeManager scopeManager;
+        private Propagator propagator = Propagator.TEXT_MAP;
+        private int maxFinishedSpans = Integer.MAX_VALUE;
+        private EvictionPolicy evictionPolicy = EvictionPolicy.DROP_OLDEST;
+        private Clock clock;
+        private IdGenerator idGenerator = IdGenerator.SEQUENTIAL;
+
+        /**
+         * @param scopeManager the ScopeManager of the MockTracer; defaults to a new {@link ThreadLocalScopeManager}
+         */
+        public Builder scopeManager(ScopeManager scopeManager) {
+            this.scopeManager = scopeManager;
+            return this;
+        }
+
+        /**
+         * @param propagator the Propagator of the MockTracer; defaults to {@link Propagator#TEXT_MAP}
+         */
+        public Builder propagator(Propagator propagator) {
+            this.propagator = propagator;
+            return this;
+        }
+
+        /**
+         * Retains at most {@code maxFinishedSpans} finish()ed MockSpans, so that memory stays flat in long-running
+         * tests while the most relevant spans remain inspectable. By default, all of them are retained.
+         *
+         * @param maxFinishedSpans the maximum number of MockSpans held, larger than 0; Integer.MAX_VALUE means no
+         *                         bound
+         * @param evictionPolicy which MockSpan to give up once maxFinishedSpans are held
+         *
+         * @see MockTracer#evictedSpanCount()
+         */
+        public Builder maxFinishedSpans(int maxFinishedSpans, EvictionPolicy evictionPolicy) {
+            if (maxFinishedSpans < 1) {
+                throw new IllegalArgumentException("maxFinishedSpans needs to be larger than 0");
+            }
+            if (evictionPolicy == null) {
+                throw new NullPointerException("evictionPolicy");
+            }
+            this.maxFinishedSpans = maxFinishedSpans;
+            this.evictionPolicy = evictionPolicy;
+            return this;
+        }
+
+        /**
+         * @param clock the source of the timestamps not given explicitly (start and finish timestamps of MockSpans
+         *              and of their log entries), e.g. a {@link io.opentracing.util.NanoClock} to measure durations
+         *              below a millisecond; defaults to a new {@link MillisClock}
+         */
+        public Builder clock(Clock clock) {
+            if (clock == null) {
+                throw new NullPointerException("clock");
+            }
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * @param idGenerator the source of trace and span ids; defaults to {@link IdGenerator#SEQUENTIAL}
+         */
+        public Builder idGenerator(IdGenerator idGenerator) {
+            if (idGenerator == null) {
+                throw new NullPointerException("idGenerator");
+            }
+            this.idGenerator = idGenerator;
+            return this;
+        }
+
+        public MockTracer build() {
+            return new MockTracer(this);
+        }
+    }
+
+    /**
+     * Clear the finishedSpans() queue and the eviction counters.
      *
      * Note that this does *not* have any effect on Spans created by MockTracer that have not finish()ed yet; those
      * will still be enqueued in finishedSpans() when they finish().
      */
-    public synchronized void reset() {
+    public void reset() {
         this.finishedSpans.clear();
     }
 
@@ -91,12 +191,216 @@ public class MockTracer implements Tracer {
      *
      * @see MockTracer#reset()
      */
-    public synchronized List<MockSpan> finishedSpans() {
-        return new ArrayList<>(this.finishedSpans);
+    public List<MockSpan> finishedSpans() {
+        return this.finishedSpans.snapshot();
+    }
+
+    /**
+     * @return the number of finish()ed MockSpans held by this MockTracer; unlike finishedSpans().size(), this does
+     * not copy them.
+     */
+    public int finishedSpanCount() {
+        return this.finishedSpans.size();
+    }
+
+    /**
+     * @return the number of finish()ed MockSpans given up by the {@link EvictionPolicy} of a MockTracer with a bounded
+     * number of finished spans (since construction or the last call to MockTracer.reset()).
+     *
+     * @see Builder#maxFinishedSpans(int, EvictionPolicy)
+     */
+    public long evictedSpanCount() {
+        return this.finishedSpans.evictedCount();
+    }
+
+    /**
+     * @return the number of evicted finish()ed MockSpans that were tagged with {@link Tags#ERROR}.
+     *
+     * @see MockTracer#evictedSpanCount()
+     */
+    public long evictedErrorSpanCount() {
+        return this.finishedSpans.evictedErrorCount();
+    }
+
+    /**
+     * Remove the finish()ed MockSpans held by this MockTracer and pass them to the consumer, in the order they
+     * finished.
+     *
+     * Long-running tests can call this periodically to process spans incrementally, keeping the retained count (and
+     * so the cost of each call) small.
+     *
+     * @return the number of MockSpans passed to the consumer
+     */
+    public int drainFinishedSpans(SpanConsumer consumer) {
+        return this.finishedSpans.drain(consumer);
+    }
+
+    /**
+     * Pass the finish()ed MockSpans that finished after the given cursor to the consumer, in the order they finished,
+     * without removing them from this MockTracer.
+     *
+     * <pre><code>
+     * long cursor = 0;
+     * while (running) {
+     *     cursor = tracer.finishedSpansSince(cursor, consumer);
+     * }
+     * </code></pre>
+     *
+     * @param cursor 0 to start from the first MockSpan held, or the value returned by the previous call
+     * @return the cursor to pass to the next call
+     *
+     * @see MockTracer#reset()
+     */
+    public long finishedSpansSince(long cursor, SpanConsumer consumer) {
+        return this.finishedSpans.since(cursor, consumer);
+    }
+
+    /**
+     * @return the finish()ed MockSpans held by this MockTracer that belong to the given trace, in the order they
+     * finished; this takes time proportional to the number of matching spans.
+     *
+     * @see MockSpan.MockContext#traceId()
+     */
+    public List<MockSpan> spansByTrace(long traceId) {
+        return this.finishedSpans.byTrace(traceId);
+    }
+
+    /**
+     * Assemble the finish()ed MockSpans held by this MockTracer that belong to the given trace into a tree, in time
+     * proportional to the number of spans in the trace.
+     *
+     * @return the trace, or null if none of its spans has finished
+     *
+     * @see MockTrace#orphans()
+     */
+    public MockTrace trace(long traceId) {
+        List<MockSpan> spans = this.finishedSpans.byTrace(traceId);
+        return spans.isEmpty() ? null : new MockTrace(traceId, spans);
+    }
+
+    /**
+     * @return the finish()ed MockSpans held by this MockTracer with the given operation name, in the order they
+     * finished; this takes time proportional to the number of matching spans.
+     */
+    public List<MockSpan> spansByOperation(String operationName) {
+        return this.finishedSpans.byOperation(operationName);
+    }
+
+    /**
+     * @return the finish()ed MockSpans held by this MockTracer whose parentId is the given one, in the order they
+     * finished; 0 returns the root spans.
+     *
+     * @see MockSpan#parentId()
+     */
+    public List<MockSpan> spansByParent(long parentId) {
+        return this.finishedSpans.byParent(parentId);
+    }
+
+    /**
+     * @return the finish()ed MockSpans held by this MockTracer tagged with the given value, in the order they finished.
+     *
+     * @see MockTracer#spansWithTag(String, Object)
+     */
+    public <T> List<MockSpan> spansWithTag(Tag<T> tag, T value) {
+        return this.finishedSpans.byTag(tag.getKey(), value);
+    }
+
+    /**
+     * Return the finish()ed MockSpans held by this MockTracer tagged with the given value, in the order they finished.
+     *
+     * A tag key is indexed the first time it is queried, which takes time proportional to the number of spans held;
+     * later queries on it take time proportional to the number of matching spans.
+     *
+     * @return the matching MockSpans
+     */
+    public List<MockSpan> spansWithTag(String key, Object value) {
+        return this.finishedSpans.byTag(key, value);
+    }
+
+    /**
+     * What a MockTracer holding a bounded number of finish()ed MockSpans does when one more finishes while it is full.
+     *
+     * @see Builder#maxFinishedSpans(int, EvictionPolicy)
+     */
+    public enum EvictionPolicy {
+        /**
+         * Evict the MockSpan that finished first.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Give up the MockSpan that is finishing.
+         */
+        DROP_NEWEST,
+
+        /**
+         * Evict the MockSpan that finished first among those not tagged with {@link Tags#ERROR}; spans tagged as
+         * errors are only evicted (oldest first) when no other span is left.
+         */
+        KEEP_ERRORS
+    }
+
+    /**
+     * Callback receiving finish()ed MockSpans.
+     *
+     * @see MockTracer#drainFinishedSpans(SpanConsumer)
+     * @see MockTracer#finishedSpansSince(long, SpanConsumer)
+     */
+    public interface SpanConsumer {
+        void accept(MockSpan span);
+    }
+
+    /**
+     * The source of the trace and span ids of the MockSpans started by a MockTracer.
+     *
+     * Implementations are called concurrently, and never return 0 from nextTraceId() or nextSpanId().
+     *
+     * @see Builder#idGenerator(IdGenerator)
+     */
+    public interface IdGenerator {
+        /**
+         * @return the upper 64 bits of a new 128-bit trace id, or 0 for 64-bit trace ids
+         */
+        long nextTraceIdHigh();
+
+        /**
+         * @return a new trace id, or its lower 64 bits for 128-bit trace ids
+         */
+        long nextTraceId();
+
+        long nextSpanId();
+
+        /**
+         * Consecutive ids from a counter shared by all MockTracers, so that they are repeatable within a test.
+         *
+         * Every MockSpan started increments the counter, which becomes a point of contention on many cores.
+         */
+        IdGenerator SEQUENTIAL = new IdGenerators.Sequential();
+
+        /**
+         * Ids from the counter of {@link #SEQUENTIAL}, reserved by every thread in blocks so that span creation does
+         * not contend on it. Ids are unique, but not consecutive across threads.
+         */
+        IdGenerator THREAD_BLOCKS = new IdGenerators.ThreadBlocks();
+
+        /**
+         * Random 64-bit trace and span ids from {@link java.util.concurrent.ThreadLocalRandom}, which look like the
+         * ids of a production tracer.
+         */
+        IdGenerator RANDOM_64 = new IdGenerators.Random(false);
+
+        /**
+         * Random 128-bit trace ids and 64-bit span ids from {@link java.util.concurrent.ThreadLocalRandom}.
+         *
+         * @see MockSpan.MockContext#traceIdHigh()
+         */
+        IdGenerator RANDOM_128 = new IdGenerators.Random(true);
     }
 
     /**
      * Noop method called on {@link Span#finish()}.
+     *
+     * Spans finishing on different threads are not serialized, so overrides may be called concurrently.
      */
     protected void onSpanFinished(MockSpan mockSpan) {
     }
@@ -125,39 +429,25 @@ public class MockTracer implements Tracer {
             }
         };
 
+        /**
+         * Writes the context in a compact, versioned layout into the carrier's ByteBuffer, and reads it back in place.
+         * The layout of each context is cached, so that injecting it again only copies it, and extracted baggage
+         * items are only decoded once read.
+         */
         Propagator BINARY = new Propagator() {
-            static final int BUFFER_SIZE = 128;
-
             @Override
             public <C> void inject(MockSpan.MockContext ctx, Format<C> format, C carrier) {
                 if (!(carrier instanceof BinaryInject)) {
                     throw new IllegalArgumentException("Expected BinaryInject, received " + carrier.getClass());
                 }
 
-                BinaryInject binary = (BinaryInject) carrier;
-                ByteArrayOutputStream stream = new ByteArrayOutputStream();
-                ObjectOutputStream objStream = null;
-                try {
-                    objStream = new ObjectOutputStream(stream);
-                    objStream.writeLong(ctx.spanId());
-                    objStream.writeLong(ctx.traceId());
-
-                    for (Map.Entry<String, String> entry : ctx.baggageItems()) {
-                        objStream.writeUTF(entry.getKey());
-                        objStream.writeUTF(entry.getValue());
-                    }
-                    objStream.flush(); // *need* to flush ObjectOutputStream.
-
-                    byte[] buff = stream.toByteArray();
-                    binary.injectionBuffer(buff.length).put(buff);
-
-                } catch (IOException e) {
-                    throw new RuntimeException("Corrupted state", e);
-                } finally {
-                    if (objStream != null) {
-                        try { objStream.close(); } catch (Exception e2) {}
-                    }
+                byte[] encoded = (byte[]) ctx.encoding(this);
+                if (encoded == null) {
+                    encoded = BinaryCodec.encode(ctx);
+                    ctx.cacheEncoding(this, encoded);
                 }
+                BinaryInject binary = (BinaryInject) carrier;
+                binary.injectionBuffer(encoded.length).put(encoded);
             }
 
             @Override
@@ -166,76 +456,96 @@ public class MockTracer implements Tracer {
                     throw new IllegalArgumentException("Expected BinaryExtract, received " + carrier.getClass());
                 }
 
-                Long traceId = null;
-                Long spanId = null;
-                Map<String, String> baggage = new HashMap<>();
-
                 BinaryExtract binary = (BinaryExtract) carrier;
-                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                ObjectInputStream objStream = null;
-                try {
-                    ByteBuffer extractBuff = binary.extractionBuffer();
-                    byte[] buff = new byte[extractBuff.remaining()];
-                    extractBuff.get(buff);
-
-                    objStream = new ObjectInputStream(new ByteArrayInputStream(buff));
-                    spanId = objStream.readLong();
-                    traceId = objStream.readLong();
-
-                    while (objStream.available() > 0) {
-                        baggage.put(objStream.readUTF(), objStream.readUTF());
-                    }
-                } catch (IOException e) {
-                    throw new RuntimeException("Corrupted state", e);
-                } finally {
-                    if (objStream != null) {
-                        try { objStream.close(); } catch (Exception e2) {}
-                    }
-                }
-
-                if (traceId != null && spanId != null) {
-                    return new MockSpan.MockContext(traceId, spanId, baggage);
-                }
-
-                return null;
+                return BinaryCodec.decode(binary.extractionBuffer());
             }
         };
 
+        /**
+         * Propagates the ids and baggage items in TextMap entries of their own. The entries of each context are
+         * cached, so that injecting it again does not format them again, and extracted baggage items are only
+         * decoded once read.
+         */
         Propagator TEXT_MAP = new Propagator() {
             public static final String SPAN_ID_KEY = "spanid";
             public static final String TRACE_ID_KEY = "traceid";
+            public static final String TRACE_ID_HIGH_KEY = "traceidhigh";
             public static final String BAGGAGE_KEY_PREFIX = "baggage-";
 
             @Override
             public <C> void inject(MockSpan.MockContext ctx, Format<C> format, C carrier) {
                 if (carrier instanceof TextMapInject) {
+                    String[] entries = (String[]) ctx.encoding(this);
+                    if (entries == null) {
+                        entries = encode(ctx);
+                        ctx.cacheEncoding(this, entries);
+                    }
                     TextMapInject textMap = (TextMapInject) carrier;
-                    for (Map.Entry<String, String> entry : ctx.baggageItems()) {
-                        textMap.put(BAGGAGE_KEY_PREFIX + entry.getKey(), entry.getValue());
+                    for (int i = 0; i < entries.length; i += 2) {
+                        textMap.put(entries[i], entries[i + 1]);
                     }
-                    textMap.put(SPAN_ID_KEY, String.valueOf(ctx.spanId()));
-                    textMap.put(TRACE_ID_KEY, String.valueOf(ctx.traceId()));
                 } else {
                     throw new IllegalArgumentException("Unknown carrier");
                 }
             }
 
+            private String[] encode(MockSpan.MockContext ctx) {
+                List<String> entries = new ArrayList<>(ctx.baggage().size() * 2 + 6);
+                for (Map.Entry<String, String> entry : ctx.baggageItems()) {
+                    entries.add(BAGGAGE_KEY_PREFIX + entry.getKey());
+                    entries.add(entry.getValue());
+                }
+                entries.add(SPAN_ID_KEY);
+                entries.add(String.valueOf(ctx.spanId()));
+                entries.add(TRACE_ID_KEY);
+                entries.add(String.valueOf(ctx.traceId()));
+                if (ctx.traceIdHigh() != 0) {
+                    entries.add(TRACE_ID_HIGH_KEY);
+                    entries.add(String.valueOf(ctx.traceIdHigh()));
+                }
+                return entries.toArray(new String[entries.size()]);
+            }
+
             @Override
             public <C> MockSpan.MockContext extract(Format<C> format, C carrier) {
+                long traceIdHigh = 0;
                 Long traceId = null;
                 Long spanId = null;
-                Map<String, String> baggage = new HashMap<>();
-
-                if (carrier instanceof TextMapExtract) {
+                LazyBaggage.PrefixedEntries baggage = null;
+
+                if (carrier instanceof KeyedTextMapExtract) {
+                    KeyedTextMapExtract textMap = (KeyedTextMapExtract) carrier;
+                    String value = textMap.get(TRACE_ID_KEY);
+                    traceId = value == null ? null : Long.valueOf(value);
+                    value = textMap.get(SPAN_ID_KEY);
+                    spanId = value == null ? null : Long.valueOf(value);
+                    value = textMap.get(TRACE_ID_HIGH_KEY);
+                    traceIdHigh = value == null ? 0 : Long.parseLong(value);
+                    if (traceId == null || spanId == null) {
+                        return null;
+                    }
+                    Iterator<Map.Entry<String, String>> entries = textMap.prefixIterator(BAGGAGE_KEY_PREFIX);
+                    while (entries.hasNext()) {
+                        Map.Entry<String, String> entry = entries.next();
+                        if (baggage == null) {
+                            baggage = new LazyBaggage.PrefixedEntries(BAGGAGE_KEY_PREFIX);
+                        }
+                        baggage.add(entry.getKey(), entry.getValue());
+                    }
+                } else if (carrier instanceof TextMapExtract) {
                     TextMapExtract textMap = (TextMapExtract) carrier;
                     for (Map.Entry<String, String> entry : textMap) {
                         if (TRACE_ID_KEY.equals(entry.getKey())) {
                             traceId = Long.valueOf(entry.getValue());
                         } else if (SPAN_ID_KEY.equals(entry.getKey())) {
                             spanId = Long.valueOf(entry.getValue());
+                        } else if (TRACE_ID_HIGH_KEY.equals(entry.getKey())) {
+                            traceIdHigh = Long.parseLong(entry.getValue());
                         } else if (entry.getKey().startsWith(BAGGAGE_KEY_PREFIX)){
-                            String key = entry.getKey().substring((BAGGAGE_KEY_PREFIX.length()));
-                            baggage.put(key, entry.getValue());
+                            if (baggage == null) {
+                                baggage = new LazyBaggage.PrefixedEntries(BAGGAGE_KEY_PREFIX);
+                            }
+                            baggage.add(entry.getKey(), entry.getValue());
                         }
                     }
                 } else {
@@ -243,12 +553,122 @@ public class MockTracer implements Tracer {
                 }
 
                 if (traceId != null && spanId != null) {
-                    return new MockSpan.MockContext(traceId, spanId, baggage);
+                    if (baggage == null) {
+                        return new MockSpan.MockContext(traceIdHigh, traceId, spanId, BaggageMap.EMPTY);
+                    }
+                    // The baggage items are only decoded once read.
+                    return new MockSpan.MockContext(traceIdHigh, traceId, spanId, baggage, null);
                 }
 
                 return null;
             }
         };
+
+        /**
+         * Propagates contexts in the W3C Trace Context {@code traceparent} and {@code tracestate} headers, with
+         * 128-bit trace ids (64-bit ones are zero padded). The {@code tracestate} is passed on as is; baggage is not
+         * propagated. HTTP header names are matched whatever their case.
+         *
+         * @see TraceParent
+         */
+        Propagator TRACE_CONTEXT = new Propagator() {
+            public static final String TRACE_STATE_KEY = "tracestate";
+            public static final int MAX_TRACE_STATE_LENGTH = 512;
+
+            // TraceParent parses without allocating, so one holder per thread is reused across extractions.
+            private final ThreadLocal<TraceParent> traceParents = new ThreadLocal<TraceParent>() {
+                @Override
+                protected TraceParent initialValue() {
+                    return new TraceParent();
+                }
+            };
+
+            @Override
+            public <C> void inject(MockSpan.MockContext ctx, Format<C> format, C carrier) {
+                if (!(carrier instanceof TextMapInject)) {
+                    throw new IllegalArgumentException("Expected TextMapInject, received " + carrier.getClass());
+                }
+
+                String traceParent = (String) ctx.encoding(this);
+                if (traceParent == null) {
+                    traceParent = TraceParent.format(ctx.traceIdHigh(), ctx.traceId(), ctx.spanId(),
+                            TraceParent.FLAG_SAMPLED);
+                    ctx.cacheEncoding(this, traceParent);
+                }
+                TextMapInject textMap = (TextMapInject) carrier;
+                textMap.put(TraceParent.HEADER, traceParent);
+                if (ctx.traceState() != null) {
+                    textMap.put(TRACE_STATE_KEY, ctx.traceState());
+                }
+            }
+
+            @Override
+            public <C> MockSpan.MockContext extract(Format<C> format, C carrier) {
+                String traceParentHeader = null;
+                String traceState = null;
+                // Keyed lookups match names exactly, so HTTP headers are always matched by walking the carrier.
+                if (format != Format.Builtin.HTTP_HEADERS && carrier instanceof KeyedTextMapExtract) {
+                    KeyedTextMapExtract textMap = (KeyedTextMapExtract) carrier;
+                    traceParentHeader = textMap.get(TraceParent.HEADER);
+                    traceState = textMap.get(TRACE_STATE_KEY);
+                } else if (carrier instanceof TextMapExtract) {
+                    for (Map.Entry<String, String> entry : (TextMapExtract) carrier) {
+                        if (B3Propagator.matches(entry.getKey(), TraceParent.HEADER)) {
+                            traceParentHeader = entry.getValue();
+                        } else if (B3Propagator.matches(entry.getKey(), TRACE_STATE_KEY)) {
+                            traceState = entry.getValue();
+                        }
+                    }
+                } else {
+                    throw new IllegalArgumentException("Expected TextMapExtract, received " + carrier.getClass());
+                }
+
+                TraceParent traceParent = traceParents.get();
+                if (!traceParent.parse(traceParentHeader)) {
+                    return null;
+                }
+                // An oversized or empty tracestate is dropped rather than truncated mid-entry.
+                if (traceState != null && (traceState.isEmpty() || traceState.length() > MAX_TRACE_STATE_LENGTH)) {
+                    traceState = null;
+                }
+                return new MockSpan.MockContext(traceParent.traceIdHigh(), traceParent.traceId(),
+                        traceParent.spanId(), BaggageMap.EMPTY, traceState);
+            }
+        };
+
+        /**
+         * Injects contexts in Zipkin's {@code X-B3-TraceId}, {@code X-B3-SpanId} and {@code X-B3-Sampled} headers,
+         * and extracts them from these or from the single {@code b3} header, whatever the case of their names.
+         * Baggage is not propagated.
+         */
+        Propagator B3_MULTI = new B3Propagator(false);
+
+        /**
+         * Injects contexts in Zipkin's single {@code b3} header, and extracts them from it or from the
+         * {@code X-B3-*} headers, whatever the case of their names. Baggage is not propagated.
+         */
+        Propagator B3_SINGLE = new B3Propagator(true);
+    }
+
+    IdGenerator idGenerator() {
+        return this.idGenerator;
+    }
+
+    /**
+     * @return the clock timestamps are read from
+     */
+    public Clock clock() {
+        return this.clock;
+    }
+
+    /**
+     * Runs the sizing pass of {@link Propagator#BINARY} without encoding anything, e.g. to reserve room for the
+     * context in an outbound frame ahead of injection.
+     *
+     * @return the exact number of bytes {@link Propagator#BINARY} injects for the given SpanContext
+     */
+    public int encodedSize(SpanContext spanContext) {
+        return BinaryCodec.encodedSize((MockSpan.MockContext) spanContext);
     }
 
     @Override
@@ -282,12 +702,12 @@ public class MockTracer implements Tracer {
     }
 
     @Override
-    public synchronized void close() {
+    public void close() {
         this.isClosed = true;
         this.finishedSpans.clear();
     }
 
-    synchronized void appendFinishedSpan(MockSpan mockSpan) {
+    void appendFinishedSpan(MockSpan mockSpan) {
         if (isClosed)
             return;
 
@@ -375,7 +795,7 @@ public class MockTracer implements Tracer {
         @Override
         public MockSpan start() {
             if (this.startMicros == 0) {
-                this.startMicros = MockSpan.nowMicros();
+                this.startMicros = clock.nowMicros();
             }
             SpanContext activeSpanContext = activeSpanContext();
             if(references.isEmpty() && !ignoringActiveSpan && activeSpanContext != null) {
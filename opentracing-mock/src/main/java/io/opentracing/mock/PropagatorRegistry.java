@@ -0,0 +1,169 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import io.opentracing.propagation.Format;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link MockTracer.Propagator} that supports several formats at once, handing each call over to the
+ * Propagators registered for its format. Formats are looked up by identity, which suits the
+ * {@link Format.Builtin} constants and custom Format singletons alike.
+ *
+ * Several Propagators can be registered for one format: injection runs all of them, e.g. to write both the W3C
+ * and the B3 headers, and extraction returns the first context one of them finds.
+ *
+ * <pre><code>
+ * PropagatorRegistry registry = new PropagatorRegistry.Builder()
+ *         .register(Format.Builtin.HTTP_HEADERS, Propagator.TRACE_CONTEXT, Propagator.B3_MULTI)
+ *         .register(Format.Builtin.TEXT_MAP, Propagator.TEXT_MAP)
+ *         .register(Format.Builtin.BINARY, Propagator.BINARY)
+ *         .build();
+ * MockTracer tracer = new MockTracer(registry);
+ * </code></pre>
+ *
+ * Propagators registered for {@link Format.Builtin#TEXT_MAP} or {@link Format.Builtin#BINARY} also handle the
+ * inject-only and extract-only variants of these formats, unless other Propagators are registered for them.
+ *
+ * A PropagatorRegistry is immutable, and thread-safe if its Propagators are.
+ */
+public final class PropagatorRegistry implements MockTracer.Propagator {
+    private final Map<Format<?>, MockTracer.Propagator[]> injectors;
+    private final Map<Format<?>, MockTracer.Propagator[]> extractors;
+
+    private PropagatorRegistry(Builder builder) {
+        this.injectors = freeze(builder.injectors);
+        this.extractors = freeze(builder.extractors);
+        alias(injectors, Format.Builtin.TEXT_MAP, Format.Builtin.TEXT_MAP_INJECT);
+        alias(extractors, Format.Builtin.TEXT_MAP, Format.Builtin.TEXT_MAP_EXTRACT);
+        alias(injectors, Format.Builtin.BINARY, Format.Builtin.BINARY_INJECT);
+        alias(extractors, Format.Builtin.BINARY, Format.Builtin.BINARY_EXTRACT);
+    }
+
+    private static Map<Format<?>, MockTracer.Propagator[]> freeze(Map<Format<?>, List<MockTracer.Propagator>> map) {
+        Map<Format<?>, MockTracer.Propagator[]> frozen = new IdentityHashMap<>(map.size() + 4);
+        for (Map.Entry<Format<?>, List<MockTracer.Propagator>> entry : map.entrySet()) {
+            frozen.put(entry.getKey(), entry.getValue().toArray(new MockTracer.Propagator[entry.getValue().size()]));
+        }
+        return frozen;
+    }
+
+    private static void alias(Map<Format<?>, MockTracer.Propagator[]> map, Format<?> format, Format<?> variant) {
+        MockTracer.Propagator[] propagators = map.get(format);
+        if (propagators != null && !map.containsKey(variant)) {
+            map.put(variant, propagators);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if no Propagator is registered to inject the given format
+     */
+    @Override
+    public <C> void inject(MockSpan.MockContext ctx, Format<C> format, C carrier) {
+        MockTracer.Propagator[] propagators = injectors.get(format);
+        if (propagators == null) {
+            throw new IllegalArgumentException("Unsupported format " + format);
+        }
+        for (MockTracer.Propagator propagator : propagators) {
+            propagator.inject(ctx, format, carrier);
+        }
+    }
+
+    /**
+     * @return the context found by the first of the Propagators registered for the format that finds one, or null
+     * @throws IllegalArgumentException if no Propagator is registered to extract the given format
+     */
+    @Override
+    public <C> MockSpan.MockContext extract(Format<C> format, C carrier) {
+        MockTracer.Propagator[] propagators = extractors.get(format);
+        if (propagators == null) {
+            throw new IllegalArgumentException("Unsupported format " + format);
+        }
+        for (MockTracer.Propagator propagator : propagators) {
+            MockSpan.MockContext context = propagator.extract(format, carrier);
+            if (context != null) {
+                return context;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return whether a Propagator is registered to inject the given format
+     */
+    public boolean canInject(Format<?> format) {
+        return injectors.containsKey(format);
+    }
+
+    /**
+     * @return whether a Propagator is registered to extract the given format
+     */
+    public boolean canExtract(Format<?> format) {
+        return extractors.containsKey(format);
+    }
+
+    public static final class Builder {
+        private final Map<Format<?>, List<MockTracer.Propagator>> injectors = new IdentityHashMap<>();
+        private final Map<Format<?>, List<MockTracer.Propagator>> extractors = new IdentityHashMap<>();
+
+        /**
+         * Registers Propagators to both inject and extract the given format, after any already registered for it.
+         */
+        public Builder register(Format<?> format, MockTracer.Propagator... propagators) {
+            return registerInjector(format, propagators).registerExtractor(format, propagators);
+        }
+
+        /**
+         * Registers Propagators to inject the given format, after any already registered for it.
+         */
+        public Builder registerInjector(Format<?> format, MockTracer.Propagator... propagators) {
+            add(injectors, format, propagators);
+            return this;
+        }
+
+        /**
+         * Registers Propagators to extract the given format, tried after any already registered for it.
+         */
+        public Builder registerExtractor(Format<?> format, MockTracer.Propagator... propagators) {
+            add(extractors, format, propagators);
+            return this;
+        }
+
+        private static void add(Map<Format<?>, List<MockTracer.Propagator>> map, Format<?> format,
+                                MockTracer.Propagator[] propagators) {
+            if (format == null) {
+                throw new NullPointerException("format");
+            }
+            for (MockTracer.Propagator propagator : propagators) {
+                if (propagator == null) {
+                    throw new NullPointerException("propagator");
+                }
+            }
+            List<MockTracer.Propagator> registered = map.get(format);
+            if (registered == null) {
+                registered = new ArrayList<>(propagators.length);
+                map.put(format, registered);
+            }
+            registered.addAll(Arrays.asList(propagators));
+        }
+
+        public PropagatorRegistry build() {
+            return new PropagatorRegistry(this);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Secondary indexes over the spans of one {@link FinishedSpanStore} shard, guarded by the shard lock.
+ *
+ * Every posting list keeps its spans in finish order, and is dropped as soon as it becomes empty so that
+ * long-running tests with many distinct traces do not leak.
+ */
+final class SpanIndex {
+    private final Map<Long, ArrayDeque<MockSpan>> byTrace = new HashMap<>();
+    private final Map<String, ArrayDeque<MockSpan>> byOperation = new HashMap<>();
+    private final Map<Long, ArrayDeque<MockSpan>> byParent = new HashMap<>();
+    private final Map<String, Map<Object, ArrayDeque<MockSpan>>> byTag = new HashMap<>();
+
+    void add(MockSpan span, String[] tagKeys) {
+        add(byTrace, span.traceId(), span);
+        add(byOperation, span.operationName(), span);
+        add(byParent, span.parentId(), span);
+        for (String tagKey : tagKeys) {
+            Object value = span.getTag(tagKey);
+            if (value != null) {
+                Map<Object, ArrayDeque<MockSpan>> index = byTag.get(tagKey);
+                if (index == null) {
+                    index = new HashMap<>();
+                    byTag.put(tagKey, index);
+                }
+                add(index, value, span);
+            }
+        }
+    }
+
+    void remove(MockSpan span) {
+        remove(byTrace, span.traceId(), span);
+        remove(byOperation, span.operationName(), span);
+        remove(byParent, span.parentId(), span);
+        for (Map.Entry<String, Map<Object, ArrayDeque<MockSpan>>> entry : byTag.entrySet()) {
+            Object value = span.getTag(entry.getKey());
+            if (value != null) {
+                remove(entry.getValue(), value, span);
+            }
+        }
+    }
+
+    /**
+     * (Re)builds the index of a tag key from the given spans, which must be in finish order.
+     */
+    void indexTag(String tagKey, Collection<MockSpan> spans) {
+        Map<Object, ArrayDeque<MockSpan>> index = new HashMap<>();
+        for (MockSpan span : spans) {
+            Object value = span.getTag(tagKey);
+            if (value != null) {
+                add(index, value, span);
+            }
+        }
+        byTag.put(tagKey, index);
+    }
+
+    void clear() {
+        byTrace.clear();
+        byOperation.clear();
+        byParent.clear();
+        for (Map<Object, ArrayDeque<MockSpan>> index : byTag.values()) {
+            index.clear();
+        }
+    }
+
+    void copyByTrace(long traceId, Collection<MockSpan> target) {
+        copy(byTrace, traceId, target);
+    }
+
+    void copyByOperation(String operationName, Collection<MockSpan> target) {
+        copy(byOperation, operationName, target);
+    }
+
+    void copyByParent(long parentId, Collection<MockSpan> target) {
+        copy(byParent, parentId, target);
+    }
+
+    void copyByTag(String tagKey, Object value, Collection<MockSpan> target) {
+        Map<Object, ArrayDeque<MockSpan>> index = byTag.get(tagKey);
+        if (index != null) {
+            copy(index, value, target);
+        }
+    }
+
+    private static <K> void add(Map<K, ArrayDeque<MockSpan>> index, K key, MockSpan span) {
+        ArrayDeque<MockSpan> spans = index.get(key);
+        if (spans == null) {
+            spans = new ArrayDeque<>(4);
+            index.put(key, spans);
+        }
+        spans.addLast(span);
+    }
+
+    private static <K> void remove(Map<K, ArrayDeque<MockSpan>> index, K key, MockSpan span) {
+        ArrayDeque<MockSpan> spans = index.get(key);
+        if (spans == null) {
+            return;
+        }
+        // Spans are mostly removed oldest first, so this is usually found at the head.
+        spans.removeFirstOccurrence(span);
+        if (spans.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static <K> void copy(Map<K, ArrayDeque<MockSpan>> index, K key, Collection<MockSpan> target) {
+        ArrayDeque<MockSpan> spans = index.get(key);
+        if (spans != null) {
+            target.addAll(spans);
+        }
+    }
+}
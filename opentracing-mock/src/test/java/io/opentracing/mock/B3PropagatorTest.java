@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMapAdapter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class B3PropagatorTest {
+
+    @Test
+    public void testMultiHeaderRoundTrip() {
+        MockTracer tracer = new MockTracer(MockTracer.Propagator.B3_MULTI);
+        MockSpan span = tracer.buildSpan("foo").start();
+        Map<String, String> headers = new HashMap<>();
+        tracer.inject(span.context(), Format.Builtin.HTTP_HEADERS, new TextMapAdapter(headers));
+
+        assertEquals(String.format("%016x", span.context().traceId()), headers.get("X-B3-TraceId"));
+        assertEquals(String.format("%016x", span.context().spanId()), headers.get("X-B3-SpanId"));
+        assertEquals("1", headers.get("X-B3-Sampled"));
+        assertSameIds(span.context(), extract(tracer, headers));
+    }
+
+    @Test
+    public void testSingleHeaderRoundTrip() {
+        MockTracer tracer = new MockTracer.Builder()
+                .propagator(MockTracer.Propagator.B3_SINGLE)
+                .idGenerator(MockTracer.IdGenerator.RANDOM_128)
+                .build();
+        MockSpan span = tracer.buildSpan("foo").start();
+        Map<String, String> headers = new HashMap<>();
+        tracer.inject(span.context(), Format.Builtin.HTTP_HEADERS, new TextMapAdapter(headers));
+
+        assertEquals(span.context().toTraceId() + "-" + String.format("%016x", span.context().spanId()) + "-1",
+                headers.get("b3"));
+        assertSameIds(span.context(), extract(tracer, headers));
+    }
+
+    @Test
+    public void testMixedCase() {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Accept", "*/*");
+        headers.put("x-b3-traceid", "463ac35c9f6413ad48485a3953bb6124");
+        headers.put("X-B3-SPANID", "a2fb4a1d1a96d312");
+        headers.put("X-B3-ParentSpanId", "0020000000000001");
+        MockSpan.MockContext context = extract(new MockTracer(MockTracer.Propagator.B3_MULTI), headers);
+        assertEquals(0x463ac35c9f6413adL, context.traceIdHigh());
+        assertEquals(0x48485a3953bb6124L, context.traceId());
+        assertEquals(0xa2fb4a1d1a96d312L, context.spanId());
+
+        headers.clear();
+        headers.put("B3", "80f198ee56343ba864fe8b2a57d3eff7-e457b5a2e4d86bd1-d-05e3ac9a4f6e3b90");
+        context = extract(new MockTracer(MockTracer.Propagator.B3_MULTI), headers);
+        assertEquals(0x80f198ee56343ba8L, context.traceIdHigh());
+        assertEquals(0xe457b5a2e4d86bd1L, context.spanId());
+    }
+
+    @Test
+    public void testSingleHeaderForms() {
+        MockTracer tracer = new MockTracer(MockTracer.Propagator.B3_SINGLE);
+        assertEquals(2, extract(tracer, b3("0000000000000001-0000000000000002")).spanId());
+        assertEquals(2, extract(tracer, b3("0000000000000001-0000000000000002-0")).spanId());
+        assertEquals(2, extract(tracer, b3("0000000000000001-0000000000000002-1-0000000000000003")).spanId());
+        assertNull(extract(tracer, b3("0")));
+        assertNull(extract(tracer, b3("d")));
+    }
+
+    @Test
+    public void testMalformed() {
+        MockTracer tracer = new MockTracer(MockTracer.Propagator.B3_SINGLE);
+        String[] malformed = {
+                "",
+                "0000000000000001",
+                "000000000000001-0000000000000002",
+                "0000000000000001-000000000000002",
+                "0000000000000000-0000000000000002",
+                "0000000000000001-0000000000000000",
+                "000000000000000G-0000000000000002",
+                "0000000000000001-0000000000000002-",
+                "0000000000000001-0000000000000002x1",
+                "0000000000000001-0000000000000002-1-000000000000003",
+                "0000000000000001-0000000000000002-1x0000000000000003",
+        };
+        for (String value : malformed) {
+            assertNull(value, extract(tracer, b3(value)));
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("X-B3-TraceId", "0000000000000001");
+        assertNull(extract(tracer, headers));
+        headers.put("X-B3-SpanId", "2");
+        assertNull(extract(tracer, headers));
+    }
+
+    @Test
+    public void testMatches() {
+        assertTrue(B3Propagator.matches("x-B3-tRaCeId", B3Propagator.TRACE_ID));
+        assertFalse(B3Propagator.matches("y-b3-traceid", B3Propagator.TRACE_ID));
+        assertFalse(B3Propagator.matches("x-b3-traceids", B3Propagator.TRACE_ID));
+        assertFalse(B3Propagator.matches("x-b3-spanid", B3Propagator.TRACE_ID));
+    }
+
+    private static Map<String, String> b3(String value) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("b3", value);
+        return headers;
+    }
+
+    private static MockSpan.MockContext extract(MockTracer tracer, Map<String, String> headers) {
+        return (MockSpan.MockContext) tracer.extract(Format.Builtin.HTTP_HEADERS, new TextMapAdapter(headers));
+    }
+
+    private static void assertSameIds(MockSpan.MockContext expected, MockSpan.MockContext actual) {
+        assertEquals(expected.traceIdHigh(), actual.traceIdHigh());
+        assertEquals(expected.traceId(), actual.traceId());
+        assertEquals(expected.spanId(), actual.spanId());
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class BaggageMapTest {
+
+    @Test
+    public void testWith() {
+        BaggageMap empty = BaggageMap.EMPTY;
+        BaggageMap one = empty.with("foo", "bar");
+        BaggageMap two = one.with("bar", "baz");
+
+        assertTrue(empty.isEmpty());
+        assertEquals(1, one.size());
+        assertEquals("bar", one.get("foo"));
+        assertNull(one.get("bar"));
+        assertEquals(2, two.size());
+        assertEquals("baz", two.get("bar"));
+
+        BaggageMap replaced = two.with("foo", "qux");
+        assertEquals(2, replaced.size());
+        assertEquals("qux", replaced.get("foo"));
+        assertEquals("bar", two.get("foo"));
+        assertSame(two, two.with("foo", "bar"));
+    }
+
+    @Test
+    public void testNullKeyAndValue() {
+        BaggageMap map = BaggageMap.EMPTY.with(null, "value").with("key", null);
+        assertEquals(2, map.size());
+        assertEquals("value", map.get(null));
+        assertTrue(map.containsKey("key"));
+        assertNull(map.get("key"));
+        assertFalse(map.containsKey("other"));
+
+        Map<String, String> expected = new HashMap<>();
+        expected.put(null, "value");
+        expected.put("key", null);
+        assertEquals(expected, map);
+    }
+
+    @Test
+    public void testHashCollisions() {
+        // "Aa" and "BB" have the same hash code.
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        BaggageMap map = BaggageMap.EMPTY.with("Aa", "1").with("BB", "2").with("AaAa", "3").with("BBBB", "4")
+                .with("AaBB", "5");
+        assertEquals(5, map.size());
+        assertEquals("1", map.get("Aa"));
+        assertEquals("2", map.get("BB"));
+        assertEquals("3", map.get("AaAa"));
+        assertEquals("4", map.get("BBBB"));
+        assertEquals("5", map.get("AaBB"));
+        assertEquals("6", map.with("BB", "6").get("BB"));
+        assertEquals("2", map.get("BB"));
+    }
+
+    @Test
+    public void testSameAsHashMap() {
+        Random random = new Random(42);
+        Map<String, String> expected = new HashMap<>();
+        BaggageMap map = BaggageMap.EMPTY;
+        for (int i = 0; i < 5000; i++) {
+            String key = "key" + random.nextInt(2000);
+            String value = "value" + i;
+            expected.put(key, value);
+            map = map.with(key, value);
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+        for (Map.Entry<String, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void testCopyOf() {
+        Map<String, String> source = new HashMap<>();
+        source.put("foo", "bar");
+        BaggageMap map = BaggageMap.copyOf(source);
+        source.put("foo", "baz");
+        assertEquals("bar", map.get("foo"));
+        assertSame(map, BaggageMap.copyOf(map));
+        assertSame(BaggageMap.EMPTY, BaggageMap.copyOf(null));
+    }
+
+    @Test
+    public void testWithAll() {
+        BaggageMap first = BaggageMap.EMPTY.with("foo", "1").with("bar", "1");
+        BaggageMap second = BaggageMap.EMPTY.with("foo", "2");
+        assertSame(first, BaggageMap.EMPTY.withAll(first));
+        assertSame(first, first.withAll(BaggageMap.EMPTY));
+
+        BaggageMap merged = first.withAll(second);
+        assertEquals(2, merged.size());
+        assertEquals("2", merged.get("foo"));
+        assertEquals("1", merged.get("bar"));
+    }
+
+    @Test
+    public void testOf() {
+        assertSame(BaggageMap.EMPTY, BaggageMap.of(new String[0], 0));
+
+        Map<String, String> expected = new HashMap<>();
+        String[] keysAndValues = new String[2 * 40];
+        for (int i = 0; i < 40; i++) {
+            keysAndValues[2 * i] = "key" + (i % 30);
+            keysAndValues[2 * i + 1] = "value" + i;
+            expected.put(keysAndValues[2 * i], keysAndValues[2 * i + 1]);
+        }
+        assertEquals(expected, BaggageMap.of(keysAndValues, 40));
+        assertEquals(expected.size(), BaggageMap.of(keysAndValues, 40).size());
+        // Few enough keys to fit a single node.
+        assertEquals(BaggageMap.EMPTY.with("key0", "value0").with("key1", "value1"),
+                BaggageMap.of(keysAndValues, 2));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable() {
+        BaggageMap.EMPTY.with("foo", "bar").put("bar", "baz");
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import io.opentracing.SpanContext;
+import io.opentracing.propagation.BinaryBatch;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class BinaryBatchTest {
+    private final MockTracer tracer = new MockTracer(MockTracer.Propagator.BINARY);
+
+    @Test
+    public void testRoundTrip() {
+        List<MockSpan.MockContext> contexts = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            MockSpan span = tracer.buildSpan("record").start();
+            if (i % 3 == 0) {
+                span.setBaggageItem("record", String.valueOf(i));
+            }
+            contexts.add(span.context());
+        }
+
+        ByteBuffer encoded = BinaryBatch.inject(tracer, contexts);
+        assertEquals(0, encoded.position());
+        BinaryBatch batch = BinaryBatch.wrap(encoded);
+        assertEquals(100, batch.size());
+        for (int i = 99; i >= 0; i--) {
+            assertEquals(tracer.encodedSize(contexts.get(i)), batch.recordLength(i));
+            MockSpan.MockContext extracted = (MockSpan.MockContext) batch.extract(tracer, i);
+            assertEquals(contexts.get(i).spanId(), extracted.spanId());
+            assertEquals(i % 3 == 0 ? String.valueOf(i) : null, extracted.getBaggageItem("record"));
+        }
+    }
+
+    @Test
+    public void testLayout() {
+        MockSpan.MockContext context = tracer.buildSpan("record").start().context();
+        ByteBuffer encoded = BinaryBatch.inject(tracer, Arrays.asList(context, null));
+        int size = tracer.encodedSize(context);
+        assertEquals(4 + 3 * 4 + size, encoded.remaining());
+        assertEquals(2, encoded.getInt(0));
+        assertEquals(16, encoded.getInt(4));
+        assertEquals(16 + size, encoded.getInt(8));
+        assertEquals(16 + size, encoded.getInt(12));
+
+        BinaryBatch batch = BinaryBatch.wrap(encoded);
+        assertEquals(0, batch.recordLength(1));
+        assertNull(batch.extract(tracer, 1));
+    }
+
+    @Test
+    public void testGrowth() {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            value.append('v');
+        }
+        MockSpan span = tracer.buildSpan("record").start();
+        span.setBaggageItem("large", value.toString());
+        BinaryBatch batch = BinaryBatch.wrap(BinaryBatch.inject(tracer,
+                Arrays.asList(span.context(), span.context(), span.context())));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(value.toString(), batch.extract(tracer, i).baggageItems().iterator().next().getValue());
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        BinaryBatch batch = BinaryBatch.wrap(BinaryBatch.inject(tracer, Collections.<SpanContext>emptyList()));
+        assertEquals(0, batch.size());
+    }
+
+    @Test
+    public void testWrapAtPosition() {
+        MockSpan.MockContext context = tracer.buildSpan("record").start().context();
+        ByteBuffer encoded = BinaryBatch.inject(tracer, Collections.singletonList(context));
+        ByteBuffer frame = ByteBuffer.allocate(encoded.remaining() + 3);
+        frame.position(3);
+        frame.put(encoded);
+        frame.position(3);
+        MockSpan.MockContext extracted = (MockSpan.MockContext) BinaryBatch.wrap(frame).extract(tracer, 0);
+        assertEquals(context.spanId(), extracted.spanId());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCorruptedCount() {
+        ByteBuffer encoded = ByteBuffer.allocate(12);
+        encoded.putInt(0, 100);
+        BinaryBatch.wrap(encoded);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCorruptedOffsets() {
+        MockSpan.MockContext context = tracer.buildSpan("record").start().context();
+        ByteBuffer encoded = BinaryBatch.inject(tracer, Collections.singletonList(context));
+        encoded.putInt(8, 1000);
+        BinaryBatch.wrap(encoded).extract(tracer, 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfBounds() {
+        BinaryBatch.wrap(BinaryBatch.inject(tracer, Collections.<SpanContext>emptyList())).extract(tracer, 0);
+    }
+}
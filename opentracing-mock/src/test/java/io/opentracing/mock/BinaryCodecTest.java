@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class BinaryCodecTest {
+
+    @Test
+    public void testRoundTrip() {
+        Map<String, String> baggage = new HashMap<>();
+        baggage.put("ascii", "value");
+        baggage.put("two-bytes", "caf\u00e9");
+        baggage.put("three-bytes", "\u20ac100");
+        baggage.put("four-bytes", "\ud83d\ude00");
+        baggage.put("", "");
+        MockSpan.MockContext context = new MockSpan.MockContext(-7, Long.MIN_VALUE, 42, baggage);
+
+        for (ByteBuffer buffer : new ByteBuffer[] {ByteBuffer.allocate(256), ByteBuffer.allocateDirect(256),
+                ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN)}) {
+            BinaryCodec.encode(context, buffer);
+            assertEquals(BinaryCodec.encodedSize(context), buffer.position());
+
+            buffer.flip();
+            MockSpan.MockContext decoded = BinaryCodec.decode(buffer);
+            assertEquals(0, buffer.remaining());
+            assertEquals(-7, decoded.traceIdHigh());
+            assertEquals(Long.MIN_VALUE, decoded.traceId());
+            assertEquals(42, decoded.spanId());
+            assertEquals(baggage, toMap(decoded));
+        }
+    }
+
+    @Test
+    public void testNullBaggage() {
+        Map<String, String> baggage = new HashMap<>();
+        baggage.put("null-value", null);
+        baggage.put(null, "null-key");
+        MockSpan.MockContext context = new MockSpan.MockContext(1, 2, baggage);
+
+        ByteBuffer buffer = ByteBuffer.allocate(BinaryCodec.encodedSize(context));
+        BinaryCodec.encode(context, buffer);
+        assertEquals(0, buffer.remaining());
+
+        buffer.flip();
+        MockSpan.MockContext decoded = BinaryCodec.decode(buffer);
+        assertEquals(baggage, toMap(decoded));
+        assertEquals(baggage, toMap(BinaryCodec.decode(ByteBuffer.wrap(BinaryCodec.encode(decoded)))));
+    }
+
+    @Test
+    public void testLayout() {
+        MockSpan.MockContext context = new MockSpan.MockContext(1, 2, new HashMap<String, String>());
+        ByteBuffer buffer = ByteBuffer.allocate(BinaryCodec.encodedSize(context));
+        BinaryCodec.encode(context, buffer);
+        assertEquals(19, buffer.position());
+        assertEquals(BinaryCodec.VERSION, buffer.get(0));
+        assertEquals(0, buffer.get(1));
+        assertEquals(1, buffer.getLong(2));
+        assertEquals(2, buffer.getLong(10));
+        assertEquals(0, buffer.get(18));
+    }
+
+    @Test
+    public void testUtf8Length() {
+        for (String value : new String[] {"", "abc", "caf\u00e9", "\u20ac", "\ud83d\ude00", "\ud83d", "a\ude00b"}) {
+            assertEquals(value, value.getBytes(StandardCharsets.UTF_8).length, BinaryCodec.utf8Length(value));
+        }
+    }
+
+    @Test
+    public void testUnpairedSurrogate() {
+        MockSpan.MockContext context = new MockSpan.MockContext(1, 2, new HashMap<String, String>())
+                .withBaggageItem("key", "a\ud83db");
+        ByteBuffer buffer = ByteBuffer.allocate(BinaryCodec.encodedSize(context));
+        BinaryCodec.encode(context, buffer);
+        buffer.flip();
+        assertEquals("a?b", BinaryCodec.decode(buffer).getBaggageItem("key"));
+    }
+
+    @Test
+    public void testVarintSize() {
+        assertEquals(1, BinaryCodec.varintSize(0));
+        assertEquals(1, BinaryCodec.varintSize(127));
+        assertEquals(2, BinaryCodec.varintSize(128));
+        assertEquals(3, BinaryCodec.varintSize(1 << 14));
+        assertEquals(5, BinaryCodec.varintSize(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testEmptyBuffer() {
+        assertNull(BinaryCodec.decode(ByteBuffer.allocate(0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedVersion() {
+        BinaryCodec.decode(ByteBuffer.wrap(new byte[] {2, 0, 0, 0}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncated() {
+        MockSpan.MockContext context = new MockSpan.MockContext(1, 2, new HashMap<String, String>())
+                .withBaggageItem("key", "value");
+        ByteBuffer buffer = ByteBuffer.allocate(BinaryCodec.encodedSize(context));
+        BinaryCodec.encode(context, buffer);
+        buffer.flip();
+        buffer.limit(buffer.limit() - 1);
+        BinaryCodec.decode(buffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedUtf8() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        buffer.put(BinaryCodec.VERSION).put((byte) 0).putLong(1).putLong(2);
+        buffer.put((byte) 1).put((byte) 1).put((byte) 0xFF).put((byte) 0);
+        buffer.flip();
+        // Baggage items are decoded lazily, so the error only shows once they are read.
+        MockSpan.MockContext context = BinaryCodec.decode(buffer);
+        context.getBaggageItem("key");
+    }
+
+    @Test
+    public void testLazyBaggage() {
+        MockTracer tracer = new MockTracer();
+        MockSpan span = tracer.buildSpan("foo").start();
+        span.setBaggageItem("foo", "bar");
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        BinaryCodec.encode(span.context(), buffer);
+        buffer.flip();
+
+        MockSpan.MockContext context = BinaryCodec.decode(buffer);
+        LazyBaggage baggage = context.lazyBaggage();
+        MockSpan child = tracer.buildSpan("child").asChildOf(context).start();
+        assertSame(baggage, child.context().lazyBaggage());
+
+        // Injecting a child again copies the items as received.
+        ByteBuffer reinjected = ByteBuffer.allocate(64);
+        BinaryCodec.encode(child.context(), reinjected);
+        reinjected.flip();
+        assertEquals(BinaryCodec.encodedSize(child.context()), reinjected.remaining());
+        assertFalse(baggage.isDecoded());
+
+        assertEquals("bar", child.getBaggageItem("foo"));
+        assertTrue(baggage.isDecoded());
+        assertEquals("bar", BinaryCodec.decode(reinjected).getBaggageItem("foo"));
+    }
+
+    private static Map<String, String> toMap(MockSpan.MockContext context) {
+        Map<String, String> map = new HashMap<>();
+        for (Map.Entry<String, String> entry : context.baggageItems()) {
+            map.put(entry.getKey(), entry.getValue());
+        }
+        return map;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.KeyedTextMapExtractAdapter;
+import io.opentracing.propagation.TextMap;
+import io.opentracing.propagation.TextMapAdapter;
+import io.opentracing.propagation.TextMapExtract;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class CachingPropagatorTest {
+    private final CachingPropagator propagator =
+            new CachingPropagator(MockTracer.Propagator.TRACE_CONTEXT, 64, "traceparent", "tracestate");
+    private final MockTracer tracer = new MockTracer(propagator);
+
+    @Test
+    public void testHitsAndMisses() {
+        Map<String, String> headers = inject(tracer.buildSpan("foo").start());
+        MockSpan.MockContext first = extract(headers);
+        MockSpan.MockContext second = extract(headers);
+        assertSame(first, second);
+        assertEquals(1, propagator.hits());
+        assertEquals(1, propagator.misses());
+        assertEquals(1, propagator.size());
+
+        headers.put("tracestate", "vendor=value");
+        MockSpan.MockContext withState = extract(headers);
+        assertNotSame(first, withState);
+        assertEquals("vendor=value", withState.traceState());
+        assertEquals(2, propagator.misses());
+    }
+
+    @Test
+    public void testIteratedCarrier() {
+        final Map<String, String> headers = inject(tracer.buildSpan("foo").start());
+        headers.put("TraceState", "vendor=value");
+        TextMapExtract carrier = new TextMapExtract() {
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                return headers.entrySet().iterator();
+            }
+        };
+        MockSpan.MockContext first = (MockSpan.MockContext) tracer.extract(Format.Builtin.TEXT_MAP_EXTRACT, carrier);
+        assertSame(first, tracer.extract(Format.Builtin.TEXT_MAP_EXTRACT, carrier));
+        assertEquals("vendor=value", first.traceState());
+        assertEquals(1, propagator.hits());
+    }
+
+    @Test
+    public void testKeyedCarrierMixedCaseHeaders() {
+        Map<String, String> headers = new HashMap<>();
+        for (Map.Entry<String, String> entry : inject(tracer.buildSpan("foo").start()).entrySet()) {
+            headers.put("Trace" + entry.getKey().substring("trace".length()), entry.getValue());
+        }
+        headers.put("TraceState", "vendor=value");
+        TextMap carrier = new KeyedTextMapAdapter(headers);
+        MockSpan.MockContext first = (MockSpan.MockContext) tracer.extract(Format.Builtin.HTTP_HEADERS, carrier);
+        assertSame(first, tracer.extract(Format.Builtin.HTTP_HEADERS, carrier));
+        assertEquals("vendor=value", first.traceState());
+        assertEquals(1, propagator.hits());
+    }
+
+    @Test
+    public void testMissingHeaderIsNotCached() {
+        assertNull(extract(new HashMap<String, String>()));
+        Map<String, String> headers = new HashMap<>();
+        headers.put("traceparent", "garbage");
+        assertNull(extract(headers));
+        assertNull(extract(headers));
+        assertEquals(0, propagator.hits());
+        assertEquals(2, propagator.misses());
+        assertEquals(0, propagator.size());
+    }
+
+    @Test
+    public void testEviction() {
+        CachingPropagator small = new CachingPropagator(MockTracer.Propagator.TRACE_CONTEXT, 4, "traceparent");
+        MockTracer tracer = new MockTracer(small);
+        Map<String, String> hot = inject(tracer.buildSpan("hot").start());
+        for (int i = 0; i < 100; i++) {
+            extract(tracer, hot);
+            extract(tracer, inject(tracer.buildSpan("cold").start()));
+        }
+        assertEquals(small.capacity(), small.size());
+        // The hot context is referenced between any two insertions, so CLOCK never evicts it.
+        assertEquals(99, small.hits());
+        assertEquals(101, small.misses());
+
+        small.clear();
+        assertEquals(0, small.size());
+        extract(tracer, hot);
+        assertEquals(102, small.misses());
+    }
+
+    @Test
+    public void testConcurrentExtraction() throws InterruptedException {
+        final CachingPropagator shared = new CachingPropagator(MockTracer.Propagator.TRACE_CONTEXT, 16, "traceparent");
+        final MockTracer tracer = new MockTracer(shared);
+        @SuppressWarnings("unchecked")
+        final Map<String, String>[] headers = new Map[64];
+        final long[] spanIds = new long[headers.length];
+        for (int i = 0; i < headers.length; i++) {
+            MockSpan span = tracer.buildSpan("foo").start();
+            headers[i] = inject(span);
+            spanIds[i] = span.context().spanId();
+        }
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            final int offset = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        int index = (i + offset) % headers.length;
+                        if (extract(tracer, headers[index]).spanId() != spanIds[index]) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        assertEquals(0, failures.get());
+        assertEquals(40000, shared.hits() + shared.misses());
+        assertTrue(shared.size() <= shared.capacity());
+    }
+
+    private Map<String, String> inject(MockSpan span) {
+        Map<String, String> headers = new HashMap<>();
+        tracer.inject(span.context(), Format.Builtin.HTTP_HEADERS, new TextMapAdapter(headers));
+        return headers;
+    }
+
+    private MockSpan.MockContext extract(Map<String, String> headers) {
+        return extract(tracer, headers);
+    }
+
+    private static MockSpan.MockContext extract(MockTracer tracer, Map<String, String> headers) {
+        return (MockSpan.MockContext) tracer.extract(Format.Builtin.HTTP_HEADERS, new TextMapAdapter(headers));
+    }
+
+    private static final class KeyedTextMapAdapter extends KeyedTextMapExtractAdapter implements TextMap {
+        KeyedTextMapAdapter(Map<String, String> map) {
+            super(map);
+        }
+
+        @Override
+        public void put(String key, String value) {
+            map.put(key, value);
+        }
+    }
+}
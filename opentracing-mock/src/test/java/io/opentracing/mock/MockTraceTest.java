@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.opentracing.References;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class MockTraceTest {
+
+    private final MockTracer tracer = new MockTracer();
+
+    @Test
+    public void testTree() {
+        MockSpan root = tracer.buildSpan("root").start();
+        MockSpan child = tracer.buildSpan("child").asChildOf(root).start();
+        MockSpan grandChild = tracer.buildSpan("grandChild").asChildOf(child).start();
+        MockSpan follower = tracer.buildSpan("follower")
+                .addReference(References.FOLLOWS_FROM, root.context())
+                .start();
+        grandChild.finish();
+        child.finish();
+        follower.finish();
+        root.finish();
+
+        MockTrace trace = tracer.trace(root.context().traceId());
+        assertEquals(root.context().traceId(), trace.traceId());
+        assertEquals(4, trace.size());
+        assertEquals(Arrays.asList(grandChild, child, follower, root), trace.spans());
+        assertTrue(trace.orphans().isEmpty());
+
+        MockTrace.Node rootNode = trace.root();
+        assertSame(root, rootNode.span());
+        assertNull(rootNode.parent());
+        assertEquals(0, rootNode.depth());
+        assertEquals(2, rootNode.children().size());
+        assertSame(child, rootNode.children().get(0).span());
+        assertSame(follower, rootNode.children().get(1).span());
+
+        MockTrace.Node grandChildNode = trace.node(grandChild.context().spanId());
+        assertEquals(2, grandChildNode.depth());
+        assertSame(trace.node(child.context().spanId()), grandChildNode.parent());
+        assertTrue(grandChildNode.children().isEmpty());
+    }
+
+    @Test
+    public void testLateParent() {
+        MockSpan parent = tracer.buildSpan("parent").start();
+        MockSpan task1 = tracer.buildSpan("task1").asChildOf(parent).start();
+        MockSpan task2 = tracer.buildSpan("task2").asChildOf(parent).start();
+        task1.finish();
+        task2.finish();
+
+        long traceId = parent.context().traceId();
+        MockTrace trace = tracer.trace(traceId);
+        assertNull(trace.root());
+        assertEquals(2, trace.orphans().size());
+        assertSame(task1, trace.orphans().get(0).span());
+        assertEquals(0, trace.orphans().get(0).depth());
+
+        parent.finish();
+        trace = tracer.trace(traceId);
+        assertSame(parent, trace.root().span());
+        assertTrue(trace.orphans().isEmpty());
+        assertEquals(2, trace.root().children().size());
+        assertEquals(1, trace.node(task2.context().spanId()).depth());
+    }
+
+    @Test
+    public void testUnknownTrace() {
+        tracer.buildSpan("foo").start().finish();
+        assertNull(tracer.trace(-1));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable() {
+        MockSpan root = tracer.buildSpan("root").start();
+        root.finish();
+        tracer.trace(root.context().traceId()).root().children().add(null);
+    }
+
+    @Test
+    public void testDeepTrace() {
+        int depth = 100000;
+        MockSpan root = tracer.buildSpan("root").start();
+        MockSpan parent = root;
+        for (int i = 1; i < depth; i++) {
+            MockSpan child = tracer.buildSpan("child").asChildOf(parent).start();
+            child.finish();
+            parent = child;
+        }
+        root.finish();
+
+        MockTrace trace = tracer.trace(root.context().traceId());
+        assertEquals(depth, trace.size());
+        assertSame(root, trace.root().span());
+        assertEquals(depth - 1, trace.node(parent.context().spanId()).depth());
+    }
+}
@@ -16,14 +16,23 @@ package io.opentracing.mock;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 import io.opentracing.propagation.BinaryExtract;
 import io.opentracing.propagation.BinaryInject;
 import io.opentracing.propagation.TextMapAdapter;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -35,9 +44,20 @@ import io.opentracing.SpanContext;
 import io.opentracing.Tracer;
 import io.opentracing.propagation.Binary;
 import io.opentracing.propagation.BinaryAdapters;
+import io.opentracing.propagation.BinaryBufferPool;
 import io.opentracing.propagation.Format;
+import io.opentracing.propagation.KeyedTextMapExtract;
+import io.opentracing.propagation.KeyedTextMapExtractAdapter;
+import io.opentracing.propagation.PooledBinaryInject;
+import io.opentracing.propagation.TextMap;
+import io.opentracing.propagation.TextMapExtract;
 import io.opentracing.propagation.TextMapExtractAdapter;
 import io.opentracing.propagation.TextMapInjectAdapter;
+import io.opentracing.tag.Tags;
+import io.opentracing.util.Clock;
+import io.opentracing.util.ManualClock;
+import io.opentracing.util.MillisClock;
+import io.opentracing.util.ThreadLocalScopeManager;
 
 public class MockTracerTest {
     @Test
@@ -148,6 +168,120 @@ public class MockTracerTest {
         Assert.assertEquals(startMicros, finishedSpans.get(0).startMicros());
     }
 
+    @Test
+    public void testClock() {
+        ManualClock clock = new ManualClock(1000);
+        MockTracer tracer = new MockTracer.Builder().clock(clock).build();
+        MockSpan span = tracer.buildSpan("foo").start();
+        clock.advance(250, TimeUnit.MICROSECONDS);
+        span.log("event");
+        clock.advance(250, TimeUnit.MICROSECONDS);
+        span.finish();
+
+        Assert.assertSame(clock, tracer.clock());
+        Assert.assertEquals(1000, span.startMicros());
+        Assert.assertEquals(1250, span.logEntries().get(0).timestampMicros());
+        Assert.assertEquals(1500, span.finishMicros());
+    }
+
+    @Test
+    public void testFreshManualClock() {
+        MockTracer tracer = new MockTracer.Builder().clock(new ManualClock()).build();
+        MockSpan span = tracer.buildSpan("foo").start();
+        span.finish();
+
+        Assert.assertTrue(span.startMicros() > 0);
+        Assert.assertEquals(span.startMicros(), span.finishMicros());
+    }
+
+    @Test
+    public void testBuilderDefaults() {
+        MockTracer tracer = new MockTracer.Builder().build();
+        Assert.assertTrue(tracer.scopeManager() instanceof ThreadLocalScopeManager);
+        Assert.assertTrue(tracer.clock() instanceof MillisClock);
+        Assert.assertNotSame(tracer.scopeManager(), new MockTracer.Builder().build().scopeManager());
+
+        Map<String, String> carrier = new HashMap<>();
+        MockSpan span = tracer.buildSpan("foo").start();
+        tracer.inject(span.context(), Format.Builtin.TEXT_MAP, new TextMapAdapter(carrier));
+        Assert.assertEquals(String.valueOf(span.context().spanId()), carrier.get("spanid"));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullClock() {
+        new MockTracer.Builder().clock(null);
+    }
+
+    @Test
+    public void testSequentialIds() {
+        MockTracer tracer = new MockTracer.Builder().idGenerator(MockTracer.IdGenerator.SEQUENTIAL).build();
+        MockSpan root = tracer.buildSpan("root").start();
+        MockSpan child = tracer.buildSpan("child").asChildOf(root).start();
+        Assert.assertEquals(root.context().traceId() + 1, root.context().spanId());
+        Assert.assertEquals(root.context().spanId() + 1, child.context().spanId());
+        Assert.assertEquals(0, root.context().traceIdHigh());
+    }
+
+    @Test
+    public void testThreadBlockIds() throws InterruptedException {
+        final MockTracer tracer = new MockTracer.Builder()
+                .idGenerator(MockTracer.IdGenerator.THREAD_BLOCKS)
+                .build();
+        final Set<Long> ids = Collections.synchronizedSet(new HashSet<Long>());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 3000; j++) {
+                        MockSpan span = tracer.buildSpan("foo").start();
+                        ids.add(span.context().traceId());
+                        ids.add(span.context().spanId());
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(4 * 3000 * 2, ids.size());
+        Assert.assertFalse(ids.contains(0L));
+    }
+
+    @Test
+    public void testRandomIds() {
+        MockTracer tracer = new MockTracer.Builder().idGenerator(MockTracer.IdGenerator.RANDOM_64).build();
+        MockSpan root = tracer.buildSpan("root").start();
+        MockSpan child = tracer.buildSpan("child").asChildOf(root).start();
+        Assert.assertNotEquals(0, root.context().traceId());
+        Assert.assertNotEquals(root.context().spanId(), child.context().spanId());
+        Assert.assertEquals(root.context().traceId(), child.context().traceId());
+        Assert.assertEquals(0, root.context().traceIdHigh());
+        Assert.assertEquals(String.valueOf(root.context().traceId()), root.context().toTraceId());
+    }
+
+    @Test
+    public void testRandom128BitTraceIds() {
+        MockTracer tracer = new MockTracer.Builder().idGenerator(MockTracer.IdGenerator.RANDOM_128).build();
+        MockSpan root = tracer.buildSpan("root").start();
+        while (root.context().traceIdHigh() == 0) {
+            root = tracer.buildSpan("root").start();
+        }
+        MockSpan child = tracer.buildSpan("child").asChildOf(root).start();
+        Assert.assertEquals(root.context().traceIdHigh(), child.context().traceIdHigh());
+        Assert.assertEquals(32, root.context().toTraceId().length());
+        Assert.assertEquals(root.context().toTraceId(), child.context().toTraceId());
+
+        Map<String, String> carrier = new HashMap<>();
+        tracer.inject(root.context(), Format.Builtin.TEXT_MAP, new TextMapAdapter(carrier));
+        MockSpan.MockContext extracted = (MockSpan.MockContext) tracer.extract(Format.Builtin.TEXT_MAP,
+                new TextMapAdapter(carrier));
+        Assert.assertEquals(root.context().toTraceId(), extracted.toTraceId());
+        Assert.assertEquals(root.context().spanId(), extracted.spanId());
+    }
+
     @Test
     public void testTextMapPropagatorTextMap() {
         MockTracer tracer = new MockTracer(MockTracer.Propagator.TEXT_MAP);
@@ -182,6 +316,161 @@ public class MockTracerTest {
         Assert.assertEquals("donttouch", injectMap.get("foobag"));
     }
 
+    @Test
+    public void testTextMapPropagatorKeyedExtract() {
+        MockTracer tracer = new MockTracer(MockTracer.Propagator.TEXT_MAP);
+        Span span = tracer.buildSpan("foo").start();
+        span.setBaggageItem("foobag", "fooitem");
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("accept", "*/*");
+        tracer.inject(span.context(), Format.Builtin.HTTP_HEADERS, new TextMapAdapter(headers));
+
+        final KeyedTextMapExtractAdapter keyed = new KeyedTextMapExtractAdapter(headers);
+        MockSpan.MockContext extracted = (MockSpan.MockContext) tracer.extract(Format.Builtin.TEXT_MAP_EXTRACT,
+                new KeyedTextMapExtract() {
+                    @Override
+                    public String get(String key) {
+                        return keyed.get(key);
+                    }
+
+                    @Override
+                    public Iterator<Map.Entry<String, String>> prefixIterator(String prefix) {
+                        return keyed.prefixIterator(prefix);
+                    }
+
+                    @Override
+                    public Iterator<Map.Entry<String, String>> iterator() {
+                        throw new AssertionError("Keyed carriers should not be iterated");
+                    }
+                });
+        MockSpan.MockContext iterated = (MockSpan.MockContext) tracer.extract(Format.Builtin.TEXT_MAP_EXTRACT,
+                new TextMapExtract() {
+                    @Override
+                    public Iterator<Map.Entry<String, String>> iterator() {
+                        return headers.entrySet().iterator();
+                    }
+                });
+
+        for (MockSpan.MockContext context : Arrays.asList(extracted, iterated)) {
+            Assert.assertEquals(((MockSpan) span).context().traceId(), context.traceId());
+            Assert.assertEquals(((MockSpan) span).context().spanId(), context.spanId());
+            Assert.assertEquals("fooitem", context.getBaggageItem("foobag"));
+        }
+
+        headers.remove("spanid");
+        Assert.assertNull(tracer.extract(Format.Builtin.HTTP_HEADERS, new TextMapAdapter(headers)));
+    }
+
+    @Test
+    public void testTraceContextPropagator() {
+        MockTracer tracer = new MockTracer(MockTracer.Propagator.TRACE_CONTEXT);
+        Map<String, String> headers = new HashMap<>();
+        headers.put("traceparent", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+        headers.put("tracestate", "congo=t61rcWkgMzE");
+
+        MockSpan.MockContext extracted = (MockSpan.MockContext) tracer.extract(Format.Builtin.HTTP_HEADERS,
+                new TextMapAdapter(headers));
+        Assert.assertEquals(0x4bf92f3577b34da6L, extracted.traceIdHigh());
+        Assert.assertEquals(0xa3ce929d0e0e4736L, extracted.traceId());
+        Assert.assertEquals(0x00f067aa0ba902b7L, extracted.spanId());
+        Assert.assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", extracted.toTraceId());
+
+        MockSpan child = tracer.buildSpan("child").asChildOf(extracted).start();
+        Map<String, String> injected = new HashMap<>();
+        tracer.inject(child.context(), Format.Builtin.HTTP_HEADERS, new TextMapAdapter(injected));
+        Assert.assertEquals(String.format("00-4bf92f3577b34da6a3ce929d0e0e4736-%016x-01", child.context().spanId()),
+                injected.get("traceparent"));
+        Assert.assertEquals("congo=t61rcWkgMzE", injected.get("tracestate"));
+    }
+
+    @Test
+    public void testTraceContextPropagatorMixedCaseHeaders() {
+        MockTracer tracer = new MockTracer(MockTracer.Propagator.TRACE_CONTEXT);
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Traceparent", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+        headers.put("TraceState", "congo=t61rcWkgMzE");
+
+        for (TextMap carrier : Arrays.asList(new TextMapAdapter(headers), new KeyedTextMapAdapter(headers))) {
+            MockSpan.MockContext extracted = (MockSpan.MockContext) tracer.extract(Format.Builtin.HTTP_HEADERS,
+                    carrier);
+            Assert.assertEquals(0xa3ce929d0e0e4736L, extracted.traceId());
+            Assert.assertEquals(0x00f067aa0ba902b7L, extracted.spanId());
+            Assert.assertEquals("congo=t61rcWkgMzE", extracted.traceState());
+        }
+    }
+
+    @Test
+    public void testTraceContextPropagatorMalformed() {
+        MockTracer tracer = new MockTracer(MockTracer.Propagator.TRACE_CONTEXT);
+        Map<String, String> headers = new HashMap<>();
+        headers.put("traceparent", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7");
+        Assert.assertNull(tracer.extract(Format.Builtin.HTTP_HEADERS, new TextMapAdapter(headers)));
+
+        MockSpan root = tracer.buildSpan("root").start();
+        tracer.inject(root.context(), Format.Builtin.HTTP_HEADERS, new TextMapAdapter(headers));
+        Assert.assertFalse(headers.containsKey("tracestate"));
+        MockSpan.MockContext extracted = (MockSpan.MockContext) tracer.extract(Format.Builtin.HTTP_HEADERS,
+                new TextMapAdapter(headers));
+        Assert.assertEquals(0, extracted.traceIdHigh());
+        Assert.assertEquals(root.context().traceId(), extracted.traceId());
+        Assert.assertNull(extracted.traceState());
+    }
+
+    @Test
+    public void testCachedEncodings() {
+        MockTracer textMapTracer = new MockTracer(MockTracer.Propagator.TEXT_MAP);
+        MockTracer binaryTracer = new MockTracer(MockTracer.Propagator.BINARY);
+        MockSpan span = textMapTracer.buildSpan("foo").start();
+        span.setBaggageItem("foobag", "fooitem");
+
+        Map<String, String> first = new HashMap<>();
+        Map<String, String> second = new HashMap<>();
+        textMapTracer.inject(span.context(), Format.Builtin.TEXT_MAP_INJECT, new TextMapAdapter(first));
+        textMapTracer.inject(span.context(), Format.Builtin.TEXT_MAP_INJECT, new TextMapAdapter(second));
+        Assert.assertEquals(first, second);
+        Assert.assertSame(first.get("spanid"), second.get("spanid"));
+
+        ByteBuffer buffer = ByteBuffer.allocate(128);
+        binaryTracer.inject(span.context(), Format.Builtin.BINARY_INJECT, BinaryAdapters.injectionCarrier(buffer));
+        Assert.assertEquals(binaryTracer.encodedSize(span.context()), buffer.position());
+        buffer.flip();
+        MockSpan.MockContext extracted = (MockSpan.MockContext) binaryTracer.extract(Format.Builtin.BINARY_EXTRACT,
+                BinaryAdapters.extractionCarrier(buffer));
+        Assert.assertEquals("fooitem", extracted.getBaggageItem("foobag"));
+
+        // Adding baggage makes a new context, which is encoded afresh.
+        span.setBaggageItem("barbag", "baritem");
+        Map<String, String> third = new HashMap<>();
+        textMapTracer.inject(span.context(), Format.Builtin.TEXT_MAP_INJECT, new TextMapAdapter(third));
+        Assert.assertEquals("baritem", third.get("baggage-barbag"));
+        Assert.assertEquals(first.get("spanid"), third.get("spanid"));
+    }
+
+    @Test
+    public void testTextMapPropagatorLazyBaggage() {
+        MockTracer tracer = new MockTracer(MockTracer.Propagator.TEXT_MAP);
+        Span span = tracer.buildSpan("foo").start();
+        span.setBaggageItem("foobag", "fooitem");
+        Map<String, String> headers = new HashMap<>();
+        tracer.inject(span.context(), Format.Builtin.TEXT_MAP_INJECT, new TextMapAdapter(headers));
+
+        MockSpan.MockContext extracted = (MockSpan.MockContext) tracer.extract(Format.Builtin.TEXT_MAP_EXTRACT,
+                new TextMapAdapter(headers));
+        MockSpan child = tracer.buildSpan("bar").asChildOf(extracted).start();
+        Assert.assertSame(extracted.lazyBaggage(), child.context().lazyBaggage());
+        Assert.assertFalse(extracted.lazyBaggage().isDecoded());
+
+        Assert.assertEquals("fooitem", child.getBaggageItem("foobag"));
+        Assert.assertTrue(extracted.lazyBaggage().isDecoded());
+        Assert.assertEquals("fooitem", extracted.getBaggageItem("foobag"));
+
+        headers.remove("baggage-foobag");
+        extracted = (MockSpan.MockContext) tracer.extract(Format.Builtin.TEXT_MAP_EXTRACT,
+                new TextMapAdapter(headers));
+        Assert.assertNull(extracted.lazyBaggage());
+        Assert.assertFalse(extracted.baggageItems().iterator().hasNext());
+    }
+
     @Test
     public void testTextMapPropagatorHttpHeaders() {
         MockTracer tracer = new MockTracer(MockTracer.Propagator.TEXT_MAP);
@@ -241,6 +530,27 @@ public class MockTracerTest {
         Assert.assertEquals("baritem", finishedSpans.get(1).getBaggageItem("barbag"));
     }
 
+    @Test
+    public void testBinaryPropagatorPooledCarrier() {
+        MockTracer tracer = new MockTracer(MockTracer.Propagator.BINARY);
+        Span span = tracer.buildSpan("foo").start();
+        span.setBaggageItem("foobag", "fooitem");
+
+        PooledBinaryInject carrier = new BinaryBufferPool().injectionCarrier();
+        tracer.inject(span.context(), Format.Builtin.BINARY_INJECT, carrier);
+        ByteBuffer buffer = carrier.buffer();
+        Assert.assertTrue(buffer.isDirect());
+        Assert.assertEquals(tracer.encodedSize(span.context()), buffer.position());
+        Assert.assertEquals(buffer.limit(), buffer.position());
+
+        buffer.flip();
+        MockSpan.MockContext extracted = (MockSpan.MockContext) tracer.extract(Format.Builtin.BINARY_EXTRACT,
+                BinaryAdapters.extractionCarrier(buffer));
+        carrier.release();
+        Assert.assertEquals(((MockSpan) span).context().spanId(), extracted.spanId());
+        Assert.assertEquals("fooitem", extracted.getBaggageItem("foobag"));
+    }
+
     @Test(expected = RuntimeException.class)
     public void testBinaryPropagatorExtractError() {
         MockTracer tracer = new MockTracer(MockTracer.Propagator.BINARY);
@@ -393,4 +703,374 @@ public class MockTracerTest {
         mockTracer.buildSpan("foo").start().finish();
         assertEquals(0, mockTracer.finishedSpans().size());
     }
+
+    @Test
+    public void testConcurrentFinish() throws InterruptedException {
+        final MockTracer mockTracer = new MockTracer();
+        final int threadCount = 8;
+        final int spansPerThread = 1000;
+        final CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            final String operationName = "thread-" + i;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int j = 0; j < spansPerThread; j++) {
+                        mockTracer.buildSpan(operationName).withTag("index", j).start().finish();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        List<MockSpan> finishedSpans = mockTracer.finishedSpans();
+        assertEquals(threadCount * spansPerThread, finishedSpans.size());
+
+        // Spans finished by the same thread keep their relative order.
+        Map<String, Integer> lastIndex = new HashMap<>();
+        for (MockSpan span : finishedSpans) {
+            int index = (Integer) span.tags().get("index");
+            Integer previous = lastIndex.put(span.operationName(), index);
+            assertEquals(previous == null ? 0 : previous + 1, index);
+        }
+
+        mockTracer.reset();
+        assertEquals(0, mockTracer.finishedSpans().size());
+    }
+
+    @Test
+    public void testFinishedSpanCount() {
+        MockTracer mockTracer = new MockTracer();
+        assertEquals(0, mockTracer.finishedSpanCount());
+
+        mockTracer.buildSpan("foo").start().finish();
+        mockTracer.buildSpan("bar").start().finish();
+        assertEquals(2, mockTracer.finishedSpanCount());
+
+        mockTracer.reset();
+        assertEquals(0, mockTracer.finishedSpanCount());
+    }
+
+    @Test
+    public void testDrainFinishedSpans() {
+        MockTracer mockTracer = new MockTracer();
+        mockTracer.buildSpan("foo").start().finish();
+        mockTracer.buildSpan("bar").start().finish();
+
+        final List<MockSpan> drained = new ArrayList<>();
+        MockTracer.SpanConsumer consumer = new MockTracer.SpanConsumer() {
+            @Override
+            public void accept(MockSpan span) {
+                drained.add(span);
+            }
+        };
+        assertEquals(2, mockTracer.drainFinishedSpans(consumer));
+        assertEquals(2, drained.size());
+        assertEquals("foo", drained.get(0).operationName());
+        assertEquals("bar", drained.get(1).operationName());
+        assertEquals(0, mockTracer.finishedSpanCount());
+        assertEquals(0, mockTracer.finishedSpans().size());
+
+        mockTracer.buildSpan("baz").start().finish();
+        assertEquals(1, mockTracer.drainFinishedSpans(consumer));
+        assertEquals("baz", drained.get(2).operationName());
+    }
+
+    @Test
+    public void testFinishedSpansSince() {
+        MockTracer mockTracer = new MockTracer();
+        final List<MockSpan> seen = new ArrayList<>();
+        MockTracer.SpanConsumer consumer = new MockTracer.SpanConsumer() {
+            @Override
+            public void accept(MockSpan span) {
+                seen.add(span);
+            }
+        };
+
+        long cursor = mockTracer.finishedSpansSince(0, consumer);
+        assertEquals(0, seen.size());
+
+        mockTracer.buildSpan("foo").start().finish();
+        mockTracer.buildSpan("bar").start().finish();
+        cursor = mockTracer.finishedSpansSince(cursor, consumer);
+        assertEquals(2, seen.size());
+        assertEquals("foo", seen.get(0).operationName());
+        assertEquals("bar", seen.get(1).operationName());
+
+        assertEquals(cursor, mockTracer.finishedSpansSince(cursor, consumer));
+        assertEquals(2, seen.size());
+
+        mockTracer.buildSpan("baz").start().finish();
+        mockTracer.finishedSpansSince(cursor, consumer);
+        assertEquals(3, seen.size());
+        assertEquals("baz", seen.get(2).operationName());
+
+        // Nothing is removed.
+        assertEquals(3, mockTracer.finishedSpans().size());
+    }
+
+    @Test
+    public void testRetentionDropOldest() {
+        MockTracer mockTracer = new MockTracer.Builder()
+                .maxFinishedSpans(2, MockTracer.EvictionPolicy.DROP_OLDEST)
+                .build();
+        for (int i = 0; i < 5; i++) {
+            mockTracer.buildSpan("span-" + i).start().finish();
+        }
+
+        List<MockSpan> finishedSpans = mockTracer.finishedSpans();
+        assertEquals(2, finishedSpans.size());
+        assertEquals("span-3", finishedSpans.get(0).operationName());
+        assertEquals("span-4", finishedSpans.get(1).operationName());
+        assertEquals(2, mockTracer.finishedSpanCount());
+        assertEquals(3, mockTracer.evictedSpanCount());
+        assertEquals(0, mockTracer.evictedErrorSpanCount());
+    }
+
+    @Test
+    public void testRetentionDropNewest() {
+        MockTracer mockTracer = new MockTracer.Builder()
+                .maxFinishedSpans(2, MockTracer.EvictionPolicy.DROP_NEWEST)
+                .build();
+        for (int i = 0; i < 5; i++) {
+            mockTracer.buildSpan("span-" + i).start().finish();
+        }
+
+        List<MockSpan> finishedSpans = mockTracer.finishedSpans();
+        assertEquals(2, finishedSpans.size());
+        assertEquals("span-0", finishedSpans.get(0).operationName());
+        assertEquals("span-1", finishedSpans.get(1).operationName());
+        assertEquals(3, mockTracer.evictedSpanCount());
+    }
+
+    @Test
+    public void testRetentionKeepErrors() {
+        MockTracer mockTracer = new MockTracer.Builder()
+                .maxFinishedSpans(3, MockTracer.EvictionPolicy.KEEP_ERRORS)
+                .build();
+        mockTracer.buildSpan("error-0").withTag(Tags.ERROR.getKey(), true).start().finish();
+        mockTracer.buildSpan("ok-0").start().finish();
+        mockTracer.buildSpan("error-1").withTag(Tags.ERROR.getKey(), true).start().finish();
+        mockTracer.buildSpan("ok-1").start().finish();
+        mockTracer.buildSpan("ok-2").start().finish();
+
+        List<MockSpan> finishedSpans = mockTracer.finishedSpans();
+        assertEquals(3, finishedSpans.size());
+        assertEquals("error-0", finishedSpans.get(0).operationName());
+        assertEquals("error-1", finishedSpans.get(1).operationName());
+        assertEquals("ok-2", finishedSpans.get(2).operationName());
+        assertEquals(2, mockTracer.evictedSpanCount());
+        assertEquals(0, mockTracer.evictedErrorSpanCount());
+
+        // Errors are only evicted once no other span is left.
+        mockTracer.buildSpan("error-2").withTag(Tags.ERROR.getKey(), true).start().finish();
+        mockTracer.buildSpan("error-3").withTag(Tags.ERROR.getKey(), true).start().finish();
+        finishedSpans = mockTracer.finishedSpans();
+        assertEquals(3, finishedSpans.size());
+        assertEquals("error-1", finishedSpans.get(0).operationName());
+        assertEquals("error-2", finishedSpans.get(1).operationName());
+        assertEquals("error-3", finishedSpans.get(2).operationName());
+        assertEquals(4, mockTracer.evictedSpanCount());
+        assertEquals(1, mockTracer.evictedErrorSpanCount());
+
+        mockTracer.reset();
+        assertEquals(0, mockTracer.finishedSpanCount());
+        assertEquals(0, mockTracer.evictedSpanCount());
+    }
+
+    @Test
+    public void testFinishedSpansIsPrefixOfFinishOrder() throws InterruptedException {
+        final MockTracer mockTracer = new MockTracer();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int j = 0; j < 1000; j++) {
+                        mockTracer.buildSpan("foo").start().finish();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        List<List<MockSpan>> snapshots = new ArrayList<>();
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                snapshots.add(mockTracer.finishedSpans());
+            }
+        }
+
+        List<MockSpan> finishedSpans = mockTracer.finishedSpans();
+        for (List<MockSpan> snapshot : snapshots) {
+            assertEquals(finishedSpans.subList(0, snapshot.size()), snapshot);
+        }
+    }
+
+    @Test
+    public void testRetentionConcurrentFinish() throws InterruptedException {
+        final MockTracer mockTracer = new MockTracer.Builder()
+                .maxFinishedSpans(100, MockTracer.EvictionPolicy.DROP_OLDEST)
+                .build();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        mockTracer.buildSpan("foo").start().finish();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(100, mockTracer.finishedSpans().size());
+        assertEquals(100, mockTracer.finishedSpanCount());
+        assertEquals(8000 - 100, mockTracer.evictedSpanCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRetentionInvalidCapacity() {
+        new MockTracer.Builder().maxFinishedSpans(0, MockTracer.EvictionPolicy.DROP_OLDEST).build();
+    }
+
+    @Test
+    public void testSpansByTraceOperationAndParent() {
+        MockTracer mockTracer = new MockTracer();
+        MockSpan root = mockTracer.buildSpan("root").start();
+        MockSpan child0 = mockTracer.buildSpan("child").asChildOf(root).start();
+        MockSpan child1 = mockTracer.buildSpan("child").asChildOf(root).start();
+        MockSpan other = mockTracer.buildSpan("child").start();
+        child1.finish();
+        other.finish();
+        child0.finish();
+        root.finish();
+
+        long traceId = root.context().traceId();
+        assertEquals(Arrays.asList(child1, child0, root), mockTracer.spansByTrace(traceId));
+        assertEquals(Arrays.asList(child1, other, child0), mockTracer.spansByOperation("child"));
+        assertEquals(Arrays.asList(child1, child0), mockTracer.spansByParent(root.context().spanId()));
+        assertEquals(Arrays.asList(other, root), mockTracer.spansByParent(0));
+        assertTrue(mockTracer.spansByTrace(traceId + 1000).isEmpty());
+        assertTrue(mockTracer.spansByOperation("unknown").isEmpty());
+
+        mockTracer.reset();
+        assertTrue(mockTracer.spansByTrace(traceId).isEmpty());
+        assertTrue(mockTracer.spansByOperation("child").isEmpty());
+    }
+
+    @Test
+    public void testSpansWithTag() {
+        MockTracer mockTracer = new MockTracer();
+        MockSpan client = mockTracer.buildSpan("client").withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_CLIENT).start();
+        client.finish();
+        MockSpan untagged = mockTracer.buildSpan("untagged").start();
+        untagged.finish();
+
+        // Indexed on first query, then kept up to date as spans finish.
+        assertEquals(Arrays.asList(client), mockTracer.spansWithTag(Tags.SPAN_KIND, Tags.SPAN_KIND_CLIENT));
+        MockSpan server = mockTracer.buildSpan("server").withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_SERVER).start();
+        server.finish();
+        MockSpan client2 = mockTracer.buildSpan("client2").withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_CLIENT).start();
+        client2.finish();
+
+        assertEquals(Arrays.asList(client, client2), mockTracer.spansWithTag(Tags.SPAN_KIND, Tags.SPAN_KIND_CLIENT));
+        assertEquals(Arrays.asList(server), mockTracer.spansWithTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_SERVER));
+        assertTrue(mockTracer.spansWithTag(Tags.SPAN_KIND, Tags.SPAN_KIND_PRODUCER).isEmpty());
+        assertTrue(mockTracer.spansWithTag("unknown", "value").isEmpty());
+    }
+
+    @Test
+    public void testIndexesFollowEvictionAndDrain() {
+        MockTracer mockTracer = new MockTracer.Builder()
+                .maxFinishedSpans(2, MockTracer.EvictionPolicy.DROP_OLDEST)
+                .build();
+        assertTrue(mockTracer.spansWithTag(Tags.COMPONENT, "test").isEmpty());
+        for (int i = 0; i < 5; i++) {
+            mockTracer.buildSpan("op").withTag(Tags.COMPONENT, "test").start().finish();
+        }
+        List<MockSpan> finishedSpans = mockTracer.finishedSpans();
+        assertEquals(finishedSpans, mockTracer.spansByOperation("op"));
+        assertEquals(finishedSpans, mockTracer.spansWithTag(Tags.COMPONENT, "test"));
+        assertEquals(finishedSpans.subList(1, 2), mockTracer.spansByTrace(finishedSpans.get(1).context().traceId()));
+
+        mockTracer.drainFinishedSpans(new MockTracer.SpanConsumer() {
+            @Override
+            public void accept(MockSpan span) {
+            }
+        });
+        assertTrue(mockTracer.spansByOperation("op").isEmpty());
+        assertTrue(mockTracer.spansWithTag(Tags.COMPONENT, "test").isEmpty());
+        assertTrue(mockTracer.spansByParent(0).isEmpty());
+    }
+
+    @Test
+    public void testConcurrentTagIndexing() throws InterruptedException {
+        final MockTracer mockTracer = new MockTracer();
+        final int threadCount = 4;
+        final int spansPerThread = 2000;
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < spansPerThread; j++) {
+                        mockTracer.buildSpan("op").withTag(Tags.COMPONENT, "concurrent").start().finish();
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        // Index the key while spans are finishing, which must neither miss nor duplicate any of them.
+        mockTracer.spansWithTag(Tags.COMPONENT, "concurrent");
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(mockTracer.finishedSpans(), mockTracer.spansWithTag(Tags.COMPONENT, "concurrent"));
+    }
+
+    private static final class KeyedTextMapAdapter extends KeyedTextMapExtractAdapter implements TextMap {
+        KeyedTextMapAdapter(Map<String, String> map) {
+            super(map);
+        }
+
+        @Override
+        public void put(String key, String value) {
+            map.put(key, value);
+        }
+    }
 }
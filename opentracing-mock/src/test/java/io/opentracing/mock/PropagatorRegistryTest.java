@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.opentracing.propagation.BinaryAdapters;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMap;
+import io.opentracing.propagation.TextMapAdapter;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class PropagatorRegistryTest {
+    private static final Format<TextMap> CUSTOM = new Format<TextMap>() {
+        @Override
+        public String toString() {
+            return "CUSTOM";
+        }
+    };
+
+    private final PropagatorRegistry registry = new PropagatorRegistry.Builder()
+            .register(Format.Builtin.HTTP_HEADERS, MockTracer.Propagator.TRACE_CONTEXT, MockTracer.Propagator.B3_MULTI)
+            .register(Format.Builtin.TEXT_MAP, MockTracer.Propagator.TEXT_MAP)
+            .register(Format.Builtin.BINARY, MockTracer.Propagator.BINARY)
+            .register(CUSTOM, MockTracer.Propagator.B3_SINGLE)
+            .build();
+    private final MockTracer tracer = new MockTracer(registry);
+
+    @Test
+    public void testCompositeInjection() {
+        MockSpan span = tracer.buildSpan("foo").start();
+        Map<String, String> headers = new HashMap<>();
+        tracer.inject(span.context(), Format.Builtin.HTTP_HEADERS, new TextMapAdapter(headers));
+        assertTrue(headers.containsKey("traceparent"));
+        assertTrue(headers.containsKey("X-B3-TraceId"));
+        assertEquals(span.context().spanId(), extract(Format.Builtin.HTTP_HEADERS, headers).spanId());
+    }
+
+    @Test
+    public void testExtractionFallsBack() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("X-B3-TraceId", "0000000000000001");
+        headers.put("X-B3-SpanId", "0000000000000002");
+        assertEquals(2, extract(Format.Builtin.HTTP_HEADERS, headers).spanId());
+        assertNull(extract(Format.Builtin.HTTP_HEADERS, new HashMap<String, String>()));
+    }
+
+    @Test
+    public void testFormats() {
+        MockSpan span = tracer.buildSpan("foo").start();
+        Map<String, String> textMap = new HashMap<>();
+        tracer.inject(span.context(), Format.Builtin.TEXT_MAP_INJECT, new TextMapAdapter(textMap));
+        assertTrue(textMap.containsKey("spanid"));
+        assertEquals(span.context().spanId(),
+                ((MockSpan.MockContext) tracer.extract(Format.Builtin.TEXT_MAP_EXTRACT, new TextMapAdapter(textMap)))
+                        .spanId());
+
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        tracer.inject(span.context(), Format.Builtin.BINARY_INJECT, BinaryAdapters.injectionCarrier(buffer));
+        buffer.flip();
+        assertEquals(span.context().spanId(), ((MockSpan.MockContext) tracer.extract(Format.Builtin.BINARY_EXTRACT,
+                BinaryAdapters.extractionCarrier(buffer))).spanId());
+
+        Map<String, String> custom = new HashMap<>();
+        tracer.inject(span.context(), CUSTOM, new TextMapAdapter(custom));
+        assertTrue(custom.containsKey("b3"));
+        assertEquals(span.context().spanId(), extract(CUSTOM, custom).spanId());
+    }
+
+    @Test
+    public void testSeparateInjectorsAndExtractors() {
+        PropagatorRegistry registry = new PropagatorRegistry.Builder()
+                .registerInjector(Format.Builtin.HTTP_HEADERS, MockTracer.Propagator.TRACE_CONTEXT)
+                .registerExtractor(Format.Builtin.HTTP_HEADERS, MockTracer.Propagator.B3_MULTI)
+                .registerExtractor(Format.Builtin.HTTP_HEADERS, MockTracer.Propagator.TRACE_CONTEXT)
+                .build();
+        assertTrue(registry.canInject(Format.Builtin.HTTP_HEADERS));
+        assertTrue(registry.canExtract(Format.Builtin.HTTP_HEADERS));
+        assertFalse(registry.canInject(Format.Builtin.TEXT_MAP));
+
+        MockTracer tracer = new MockTracer(registry);
+        MockSpan span = tracer.buildSpan("foo").start();
+        Map<String, String> headers = new HashMap<>();
+        tracer.inject(span.context(), Format.Builtin.HTTP_HEADERS, new TextMapAdapter(headers));
+        assertEquals(1, headers.size());
+        MockSpan.MockContext extracted = (MockSpan.MockContext) tracer.extract(Format.Builtin.HTTP_HEADERS,
+                new TextMapAdapter(headers));
+        assertEquals(span.context().spanId(), extracted.spanId());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedFormat() {
+        new MockTracer(new PropagatorRegistry.Builder().build())
+                .inject(tracer.buildSpan("foo").start().context(), Format.Builtin.TEXT_MAP,
+                        new TextMapAdapter(new HashMap<String, String>()));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullPropagator() {
+        new PropagatorRegistry.Builder().register(Format.Builtin.TEXT_MAP, (MockTracer.Propagator) null);
+    }
+
+    private MockSpan.MockContext extract(Format<TextMap> format, Map<String, String> headers) {
+        return (MockSpan.MockContext) tracer.extract(format, new TextMapAdapter(headers));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.noop;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Utility class for checking the allocation budget of calls in tests, as reported by
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}.
+ * <p>
+ * The {@code AllocationTestUtil} can be included in your own code by adding the following dependency:
+ * <pre><code>
+ *     &lt;dependency>
+ *         &lt;groupId>io.opentracing&lt;/groupId>
+ *         &lt;artifactId>opentracing-noop&lt;/artifactId>
+ *         &lt;version><em>version</em>&lt;/version>
+ *         <strong>&lt;type>test-jar&lt;/type></strong>
+ *         &lt;scope>test&lt;/scope>
+ *      &lt;/dependency>
+ * </code></pre>
+ */
+public final class AllocationTestUtil {
+    private static final int WARMUP_ITERATIONS = 20000;
+    private static final int MEASURED_ITERATIONS = 10000;
+
+    private static com.sun.management.ThreadMXBean threadBean;
+
+    private static Object sink;
+
+    private AllocationTestUtil() {
+    }
+
+    /**
+     * A call to measure, returning its result so that it is not optimized away.
+     */
+    public interface Call {
+        Object run();
+    }
+
+    /**
+     * Skips the calling test if the JVM cannot report the bytes allocated by a thread.
+     */
+    public static void assumeAllocationCounting() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        threadBean = allocationBean;
+    }
+
+    /**
+     * Asserts that the call allocates no more than the given number of bytes, on average once warmed up. Call
+     * {@link #assumeAllocationCounting()} first.
+     */
+    public static void assertBudget(String method, long budgetPerCall, Call call) {
+        long overhead = allocatedBytes(new Call() {
+            public Object run() { return this; }
+        });
+        long perCall = Math.max(0, allocatedBytes(call) - overhead) / MEASURED_ITERATIONS;
+        assertTrue(method + " allocated " + perCall + " bytes per call, budget is " + budgetPerCall,
+                perCall <= budgetPerCall);
+    }
+
+    private static long allocatedBytes(Call call) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink = call.run();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long start = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            sink = call.run();
+        }
+        return threadBean.getThreadAllocatedBytes(threadId) - start;
+    }
+}
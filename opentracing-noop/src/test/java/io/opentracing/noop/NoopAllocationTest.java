@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.noop;
+
+import static io.opentracing.noop.AllocationTestUtil.assertBudget;
+import static io.opentracing.noop.AllocationTestUtil.assumeAllocationCounting;
+
+import io.opentracing.References;
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import io.opentracing.Tracer;
+import io.opentracing.noop.AllocationTestUtil.Call;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMapAdapter;
+import io.opentracing.tag.Tags;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks that every call on the noop path stays within its allocation budget (in bytes per call),
+ * as reported by {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}.
+ *
+ * Arguments are created up front, so that only the cost of the noop implementation itself is measured.
+ */
+public class NoopAllocationTest {
+    private final Tracer tracer = NoopTracerFactory.create();
+    private final Tracer.SpanBuilder spanBuilder = tracer.buildSpan("op");
+    private final Span span = spanBuilder.start();
+    private final SpanContext spanContext = span.context();
+    private final Scope scope = tracer.activateSpan(span);
+    private final Map<String, Object> fields = new HashMap<String, Object>();
+    private final TextMapAdapter carrier = new TextMapAdapter(new HashMap<String, String>());
+    private final Integer number = 100000;
+
+    @BeforeClass
+    public static void setUp() {
+        assumeAllocationCounting();
+    }
+
+    @Test
+    public void tracer() {
+        assertBudget("Tracer.scopeManager()", 0, new Call() {
+            public Object run() { return tracer.scopeManager(); }
+        });
+        assertBudget("Tracer.activeSpan()", 0, new Call() {
+            public Object run() { return tracer.activeSpan(); }
+        });
+        assertBudget("Tracer.activateSpan()", 0, new Call() {
+            public Object run() { return tracer.activateSpan(span); }
+        });
+        assertBudget("Tracer.buildSpan()", 0, new Call() {
+            public Object run() { return tracer.buildSpan("op"); }
+        });
+        assertBudget("Tracer.inject()", 0, new Call() {
+            public Object run() {
+                tracer.inject(spanContext, Format.Builtin.TEXT_MAP, carrier);
+                return carrier;
+            }
+        });
+        assertBudget("Tracer.extract()", 0, new Call() {
+            public Object run() { return tracer.extract(Format.Builtin.TEXT_MAP, carrier); }
+        });
+        assertBudget("Tracer.close()", 0, new Call() {
+            public Object run() {
+                tracer.close();
+                return tracer;
+            }
+        });
+    }
+
+    @Test
+    public void spanBuilder() {
+        assertBudget("SpanBuilder.asChildOf(SpanContext)", 0, new Call() {
+            public Object run() { return spanBuilder.asChildOf(spanContext); }
+        });
+        assertBudget("SpanBuilder.asChildOf(Span)", 0, new Call() {
+            public Object run() { return spanBuilder.asChildOf(span); }
+        });
+        assertBudget("SpanBuilder.addReference()", 0, new Call() {
+            public Object run() { return spanBuilder.addReference(References.FOLLOWS_FROM, spanContext); }
+        });
+        assertBudget("SpanBuilder.ignoreActiveSpan()", 0, new Call() {
+            public Object run() { return spanBuilder.ignoreActiveSpan(); }
+        });
+        assertBudget("SpanBuilder.withTag(String, String)", 0, new Call() {
+            public Object run() { return spanBuilder.withTag("key", "value"); }
+        });
+        assertBudget("SpanBuilder.withTag(String, boolean)", 0, new Call() {
+            public Object run() { return spanBuilder.withTag("key", true); }
+        });
+        assertBudget("SpanBuilder.withTag(String, Number)", 0, new Call() {
+            public Object run() { return spanBuilder.withTag("key", number); }
+        });
+        assertBudget("SpanBuilder.withTag(Tag, T)", 0, new Call() {
+            public Object run() { return spanBuilder.withTag(Tags.HTTP_STATUS, number); }
+        });
+        assertBudget("SpanBuilder.withStartTimestamp()", 0, new Call() {
+            public Object run() { return spanBuilder.withStartTimestamp(1000L); }
+        });
+        assertBudget("SpanBuilder.start()", 0, new Call() {
+            public Object run() { return spanBuilder.start(); }
+        });
+    }
+
+    @Test
+    public void span() {
+        assertBudget("Span.context()", 0, new Call() {
+            public Object run() { return span.context(); }
+        });
+        assertBudget("Span.setTag(String, String)", 0, new Call() {
+            public Object run() { return span.setTag("key", "value"); }
+        });
+        assertBudget("Span.setTag(String, boolean)", 0, new Call() {
+            public Object run() { return span.setTag("key", true); }
+        });
+        assertBudget("Span.setTag(String, Number)", 0, new Call() {
+            public Object run() { return span.setTag("key", number); }
+        });
+        assertBudget("Span.setTag(Tag, T)", 0, new Call() {
+            public Object run() { return span.setTag(Tags.HTTP_STATUS, number); }
+        });
+        assertBudget("Span.log(Map)", 0, new Call() {
+            public Object run() { return span.log(fields); }
+        });
+        assertBudget("Span.log(long, Map)", 0, new Call() {
+            public Object run() { return span.log(1000L, fields); }
+        });
+        assertBudget("Span.log(String)", 0, new Call() {
+            public Object run() { return span.log("event"); }
+        });
+        assertBudget("Span.log(long, String)", 0, new Call() {
+            public Object run() { return span.log(1000L, "event"); }
+        });
+        assertBudget("Span.setBaggageItem()", 0, new Call() {
+            public Object run() { return span.setBaggageItem("key", "value"); }
+        });
+        assertBudget("Span.getBaggageItem()", 0, new Call() {
+            public Object run() { return span.getBaggageItem("key"); }
+        });
+        assertBudget("Span.setOperationName()", 0, new Call() {
+            public Object run() { return span.setOperationName("op"); }
+        });
+        assertBudget("Span.finish()", 0, new Call() {
+            public Object run() {
+                span.finish();
+                return span;
+            }
+        });
+        assertBudget("Span.finish(long)", 0, new Call() {
+            public Object run() {
+                span.finish(1000L);
+                return span;
+            }
+        });
+    }
+
+    @Test
+    public void spanContext() {
+        assertBudget("SpanContext.toTraceId()", 0, new Call() {
+            public Object run() { return spanContext.toTraceId(); }
+        });
+        assertBudget("SpanContext.toSpanId()", 0, new Call() {
+            public Object run() { return spanContext.toSpanId(); }
+        });
+        assertBudget("SpanContext.baggageItems().iterator()", 0, new Call() {
+            public Object run() { return spanContext.baggageItems().iterator(); }
+        });
+    }
+
+    @Test
+    public void scopeManager() {
+        final NoopScopeManager scopeManager = NoopScopeManager.INSTANCE;
+        assertBudget("ScopeManager.activate()", 0, new Call() {
+            public Object run() { return scopeManager.activate(span); }
+        });
+        assertBudget("ScopeManager.activeSpan()", 0, new Call() {
+            public Object run() { return scopeManager.activeSpan(); }
+        });
+        assertBudget("Scope.close()", 0, new Call() {
+            public Object run() {
+                scope.close();
+                return scope;
+            }
+        });
+    }
+}
@@ -33,7 +33,7 @@ public class TestUtils {
         return new Callable<Integer>() {
             @Override
             public Integer call() throws Exception {
-                return tracer.finishedSpans().size();
+                return tracer.finishedSpanCount();
             }
         };
     }
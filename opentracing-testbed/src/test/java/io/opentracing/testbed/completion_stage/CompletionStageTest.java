@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.testbed.completion_stage;
+
+import io.opentracing.Scope;
+import io.opentracing.ScopeManager;
+import io.opentracing.Span;
+import io.opentracing.concurrent.TracedCompletionStage;
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.mock.MockTracer.Propagator;
+import io.opentracing.util.ThreadLocalScopeManager;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CompletionStageTest {
+
+    private final CountingScopeManager scopeManager = new CountingScopeManager();
+    private final MockTracer tracer = new MockTracer(scopeManager, Propagator.TEXT_MAP);
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void after() throws InterruptedException {
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(15, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void asyncStages() throws Exception {
+        Span parent = tracer.buildSpan("parent").start();
+        CompletableFuture<String> request = new CompletableFuture<>();
+        CompletionStage<Integer> pipeline;
+        try (Scope scope = tracer.activateSpan(parent)) {
+            pipeline = new TracedCompletionStage<>(request, tracer)
+                    .thenApplyAsync(value -> child("parse", value.length()), executor)
+                    .thenCompose(length -> CompletableFuture.supplyAsync(() -> length * 2, executor))
+                    .thenApply(length -> child("store", length))
+                    .whenComplete((length, error) -> child("done", length));
+        }
+        // Complete the first stage from a thread without an active span.
+        executor.submit(() -> request.complete("request")).get();
+
+        assertEquals(14, (int) pipeline.toCompletableFuture().get(15, TimeUnit.SECONDS));
+        parent.finish();
+
+        List<MockSpan> spans = tracer.finishedSpans();
+        assertEquals(4, spans.size());
+        for (MockSpan span : spans.subList(0, 3)) {
+            assertEquals(((MockSpan) parent).context().spanId(), span.parentId());
+        }
+        assertNull(executor.submit(tracer::activeSpan).get());
+    }
+
+    @Test
+    public void sameSpanIsNotReactivated() {
+        Span parent = tracer.buildSpan("parent").start();
+        try (Scope scope = tracer.activateSpan(parent)) {
+            int activations = scopeManager.activations.get();
+            CompletionStage<Integer> pipeline = new TracedCompletionStage<>(CompletableFuture.completedFuture(1), tracer)
+                    .thenApply(value -> value + 1)
+                    .thenApply(value -> {
+                        assertSame(parent, tracer.activeSpan());
+                        return value + 1;
+                    });
+            assertEquals(3, (int) pipeline.toCompletableFuture().join());
+            assertEquals(activations, scopeManager.activations.get());
+        } finally {
+            parent.finish();
+        }
+    }
+
+    @Test
+    public void noActiveSpan() {
+        CompletionStage<Span> stage = new TracedCompletionStage<>(CompletableFuture.completedFuture(1), tracer)
+                .thenApply(value -> tracer.activeSpan());
+        assertNull(stage.toCompletableFuture().join());
+        assertEquals(0, scopeManager.activations.get());
+    }
+
+    private int child(String operationName, int value) {
+        tracer.buildSpan(operationName).start().finish();
+        return value;
+    }
+
+    /**
+     * Counts the activations, to check that callbacks do not activate the span again.
+     */
+    static final class CountingScopeManager implements ScopeManager {
+        private final ScopeManager delegate = new ThreadLocalScopeManager();
+        final AtomicInteger activations = new AtomicInteger();
+
+        @Override
+        public Scope activate(Span span) {
+            activations.incrementAndGet();
+            return delegate.activate(span);
+        }
+
+        @Override
+        public Span activeSpan() {
+            return delegate.activeSpan();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.testbed.fork_join;
+
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.concurrent.TracedForkJoinPool;
+import io.opentracing.concurrent.TracedFunctions;
+import io.opentracing.concurrent.TracedRecursiveTask;
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.mock.MockTracer.Propagator;
+import io.opentracing.util.ThreadLocalScopeManager;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ForkJoinTest {
+
+    private final MockTracer tracer = new MockTracer(new ThreadLocalScopeManager(), Propagator.TEXT_MAP);
+    private final ForkJoinPool pool = new TracedForkJoinPool(4, tracer);
+
+    @After
+    public void after() throws InterruptedException {
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(15, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void recursiveFanOut() {
+        Span parent = tracer.buildSpan("parent").start();
+        long sum;
+        try (Scope scope = tracer.activateSpan(parent)) {
+            sum = pool.invoke(new Sum(tracer, 0, 1024));
+        } finally {
+            parent.finish();
+        }
+
+        assertEquals(1023 * 1024 / 2, sum);
+        List<MockSpan> spans = tracer.finishedSpans();
+        // 1024 / Sum.THRESHOLD leaves and the parent.
+        assertEquals(1024 / Sum.THRESHOLD + 1, spans.size());
+        assertChildrenOf((MockSpan) parent, spans.subList(0, spans.size() - 1));
+    }
+
+    @Test
+    public void submittedTask() {
+        Span parent = tracer.buildSpan("parent").start();
+        try (Scope scope = tracer.activateSpan(parent)) {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    tracer.buildSpan("task").start().finish();
+                }
+            });
+            pool.submit(() -> tracer.buildSpan("runnable").start().finish()).join();
+        } finally {
+            parent.finish();
+        }
+
+        List<MockSpan> spans = tracer.finishedSpans();
+        assertEquals(3, spans.size());
+        assertChildrenOf((MockSpan) parent, spans.subList(0, 2));
+    }
+
+    @Test
+    public void parallelStream() throws Exception {
+        Span parent = tracer.buildSpan("parent").start();
+        List<Integer> results;
+        try (Scope scope = tracer.activateSpan(parent)) {
+            results = pool.submit(() -> IntStream.range(0, 100).boxed().parallel()
+                    .map(TracedFunctions.function((Integer value) -> {
+                        tracer.buildSpan("map").start().finish();
+                        return value * 2;
+                    }, tracer))
+                    .collect(Collectors.toList())).get();
+        } finally {
+            parent.finish();
+        }
+
+        assertEquals(100, results.size());
+        List<MockSpan> spans = tracer.finishedSpans();
+        assertEquals(101, spans.size());
+        assertChildrenOf((MockSpan) parent, spans.subList(0, 100));
+    }
+
+    private static void assertChildrenOf(MockSpan parent, List<MockSpan> children) {
+        for (MockSpan child : children) {
+            assertEquals(parent.context().traceId(), child.context().traceId());
+            assertEquals(parent.context().spanId(), child.parentId());
+        }
+    }
+
+    /**
+     * Sums a range by halves, starting a span for each range of {@link #THRESHOLD} numbers.
+     */
+    static final class Sum extends TracedRecursiveTask<Long> {
+        static final int THRESHOLD = 8;
+
+        private final Tracer tracer;
+        private final int from;
+        private final int to;
+
+        Sum(Tracer tracer, int from, int to) {
+            super(tracer);
+            this.tracer = tracer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long computeTraced() {
+            if (to - from <= THRESHOLD) {
+                tracer.buildSpan("leaf").start().finish();
+                long sum = 0;
+                for (int i = from; i < to; i++) {
+                    sum += i;
+                }
+                return sum;
+            }
+            int middle = (from + to) >>> 1;
+            Sum left = new Sum(tracer, from, middle);
+            left.fork();
+            return new Sum(tracer, middle, to).compute() + left.join();
+        }
+    }
+}
@@ -16,6 +16,7 @@ package io.opentracing.testbed.late_span_finish;
 import io.opentracing.Scope;
 import io.opentracing.Span;
 import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTrace;
 import io.opentracing.mock.MockTracer;
 import io.opentracing.mock.MockTracer.Propagator;
 import io.opentracing.util.ThreadLocalScopeManager;
@@ -58,6 +59,11 @@ public class LateSpanFinishTest {
 
         assertSameTrace(spans);
 
+        MockTrace trace = tracer.trace(spans.get(2).context().traceId());
+        assertEquals("parent", trace.root().span().operationName());
+        assertEquals(2, trace.root().children().size());
+        assertEquals(0, trace.orphans().size());
+
         assertNull(tracer.scopeManager().activeSpan());
     }
 
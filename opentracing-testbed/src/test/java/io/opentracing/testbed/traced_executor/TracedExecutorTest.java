@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.testbed.traced_executor;
+
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.mock.MockTracer.Propagator;
+import io.opentracing.util.ThreadLocalScopeManager;
+import io.opentracing.util.TracedExecutorService;
+import io.opentracing.util.TracedScheduledExecutorService;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TracedExecutorTest {
+
+    private final MockTracer tracer = new MockTracer(new ThreadLocalScopeManager(), Propagator.TEXT_MAP);
+    private final ExecutorService executor = new TracedExecutorService(Executors.newFixedThreadPool(2), tracer);
+    private final ScheduledExecutorService scheduler =
+            new TracedScheduledExecutorService(Executors.newScheduledThreadPool(1), tracer);
+
+    @After
+    public void after() throws InterruptedException {
+        executor.shutdown();
+        scheduler.shutdown();
+        assertTrue(executor.awaitTermination(15, TimeUnit.SECONDS));
+        assertTrue(scheduler.awaitTermination(15, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void submit() throws Exception {
+        Span parent = tracer.buildSpan("parent").start();
+        try (Scope scope = tracer.activateSpan(parent)) {
+            executor.submit(childTask("runnable")).get();
+            executor.submit(childCallable("callable")).get();
+            executor.invokeAll(Arrays.asList(childCallable("all1"), childCallable("all2")));
+        } finally {
+            parent.finish();
+        }
+
+        List<MockSpan> spans = tracer.finishedSpans();
+        assertEquals(5, spans.size());
+        assertChildrenOf((MockSpan) parent, spans.subList(0, 4));
+
+        // Workers do not keep the span active once the tasks are done.
+        assertNull(executor.submit(activeSpan()).get());
+    }
+
+    @Test
+    public void schedule() throws Exception {
+        final CountDownLatch runs = new CountDownLatch(3);
+        Span parent = tracer.buildSpan("parent").start();
+        ScheduledFuture<?> periodic;
+        try (Scope scope = tracer.activateSpan(parent)) {
+            scheduler.schedule(childCallable("delayed"), 10, TimeUnit.MILLISECONDS).get();
+            periodic = scheduler.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    if (runs.getCount() > 0) {
+                        childTask("periodic").run();
+                        runs.countDown();
+                    }
+                }
+            }, 0, 10, TimeUnit.MILLISECONDS);
+        } finally {
+            parent.finish();
+        }
+        assertTrue(runs.await(15, TimeUnit.SECONDS));
+        periodic.cancel(false);
+
+        List<MockSpan> spans = new ArrayList<>(tracer.finishedSpans());
+        spans.remove(parent);
+        assertEquals(4, spans.size());
+        assertChildrenOf((MockSpan) parent, spans);
+    }
+
+    @Test
+    public void noActiveSpan() throws Exception {
+        final List<Runnable> executed = new ArrayList<>();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>()) {
+            @Override
+            public void execute(Runnable command) {
+                executed.add(command);
+                super.execute(command);
+            }
+        };
+        ExecutorService traced = new TracedExecutorService(pool, tracer);
+
+        Runnable task = childTask("root");
+        traced.execute(task);
+        traced.shutdown();
+        assertTrue(traced.awaitTermination(15, TimeUnit.SECONDS));
+
+        // Without an active span, the task is handed over unwrapped and starts a new trace.
+        assertSame(task, executed.get(0));
+        assertEquals(0, tracer.finishedSpans().get(0).parentId());
+    }
+
+    private static void assertChildrenOf(MockSpan parent, List<MockSpan> children) {
+        for (MockSpan child : children) {
+            assertEquals(parent.context().traceId(), child.context().traceId());
+            assertEquals(parent.context().spanId(), child.parentId());
+        }
+    }
+
+    private Runnable childTask(final String operationName) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                tracer.buildSpan(operationName).start().finish();
+            }
+        };
+    }
+
+    private Callable<String> childCallable(final String operationName) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                tracer.buildSpan(operationName).start().finish();
+                return operationName;
+            }
+        };
+    }
+
+    private Callable<Span> activeSpan() {
+        return new Callable<Span>() {
+            @Override
+            public Span call() {
+                return tracer.activeSpan();
+            }
+        };
+    }
+}
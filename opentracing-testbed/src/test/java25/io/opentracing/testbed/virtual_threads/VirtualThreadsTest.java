@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.testbed.virtual_threads;
+
+import io.opentracing.Scope;
+import io.opentracing.ScopeManager;
+import io.opentracing.Span;
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.mock.MockTracer.Propagator;
+import io.opentracing.util.ScopedValueScopeManager;
+import io.opentracing.util.ThreadLocalScopeManager;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualThreadsTest {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadsTest.class);
+    private static final int REQUESTS = 100_000;
+
+    @Test
+    public void scopedValueRequests() throws Exception {
+        ScopedValueScopeManager scopeManager = new ScopedValueScopeManager();
+        long bytes = runRequests(scopeManager, scopeManager::run);
+        logger.info("ScopedValueScopeManager: {} bytes per in-flight scope", bytes);
+    }
+
+    @Test
+    public void threadLocalRequests() throws Exception {
+        ThreadLocalScopeManager scopeManager = new ThreadLocalScopeManager();
+        long bytes = runRequests(scopeManager, (parent, request) -> {
+            try (Scope scope = scopeManager.activate(parent)) {
+                request.run();
+            }
+        });
+        logger.info("ThreadLocalScopeManager: {} bytes per in-flight scope", bytes);
+    }
+
+    @Test
+    public void frames() {
+        ScopedValueScopeManager scopeManager = new ScopedValueScopeManager();
+        MockTracer tracer = new MockTracer(scopeManager, Propagator.TEXT_MAP);
+        Span outside = tracer.buildSpan("outside").start();
+        Span parent = tracer.buildSpan("parent").start();
+
+        try (Scope scope = scopeManager.activate(outside)) {
+            scopeManager.run(parent, () -> {
+                assertSame(parent, scopeManager.activeSpan());
+                Span child = tracer.buildSpan("child").start();
+                try (Scope childScope = scopeManager.activate(child)) {
+                    assertSame(child, scopeManager.activeSpan());
+                    scopeManager.run(null, () -> assertNull(scopeManager.activeSpan()));
+                } finally {
+                    child.finish();
+                }
+                assertSame(parent, scopeManager.activeSpan());
+            });
+            assertSame(outside, scopeManager.activeSpan());
+        }
+        assertNull(scopeManager.activeSpan());
+
+        MockSpan child = tracer.finishedSpans().get(0);
+        assertEquals(((MockSpan) parent).context().spanId(), child.parentId());
+    }
+
+    interface RequestRunner {
+        void run(Span parent, Runnable request);
+    }
+
+    /**
+     * Handles {@link #REQUESTS} requests at once, each on its own virtual thread and in a child span of the same
+     * parent, and measures the heap they hold while all of them are in flight.
+     *
+     * @return the heap held per in-flight request, including its virtual thread and span
+     */
+    private static long runRequests(ScopeManager scopeManager, RequestRunner runner) throws Exception {
+        MockTracer tracer = new MockTracer(scopeManager, Propagator.TEXT_MAP);
+        Span parent = tracer.buildSpan("parent").start();
+        CountDownLatch inFlight = new CountDownLatch(REQUESTS);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger failures = new AtomicInteger();
+
+        long before = usedHeap();
+        long during;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < REQUESTS; i++) {
+                executor.submit(() -> runner.run(parent, () -> {
+                    if (tracer.activeSpan() != parent) {
+                        failures.incrementAndGet();
+                    }
+                    Span span = tracer.buildSpan("request").start();
+                    try (Scope scope = tracer.activateSpan(span)) {
+                        inFlight.countDown();
+                        release.await();
+                        if (tracer.activeSpan() != span) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        span.finish();
+                    }
+                }));
+            }
+            assertTrue(inFlight.await(60, TimeUnit.SECONDS));
+            during = usedHeap();
+            release.countDown();
+        }
+        parent.finish();
+
+        assertEquals(0, failures.get());
+        List<MockSpan> spans = tracer.finishedSpans();
+        assertEquals(REQUESTS + 1, spans.size());
+        long parentId = ((MockSpan) parent).context().spanId();
+        for (MockSpan span : spans.subList(0, REQUESTS)) {
+            assertEquals(parentId, span.parentId());
+        }
+        assertNull(tracer.activeSpan());
+        return (during - before) / REQUESTS;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.util;
+
+/**
+ * The source of the timestamps a tracer gives to spans and log records.
+ *
+ * <p>
+ * Implementations trade precision for cost:
+ * <ul>
+ * <li>{@link MillisClock} - {@link System#currentTimeMillis()}, so millisecond resolution</li>
+ * <li>{@link NanoClock} - {@link System#nanoTime()} anchored to the wall clock, for microsecond durations</li>
+ * <li>{@link CoarseClock} - a value cached by a ticker thread, the cheapest to read at very high span rates</li>
+ * <li>{@link ManualClock} - advanced by hand, for tests asserting on timestamps and durations</li>
+ * </ul>
+ *
+ * <p>
+ * Implementations are thread-safe.
+ */
+public interface Clock {
+
+    /**
+     * @return the current time, in microseconds since the epoch
+     */
+    long nowMicros();
+}
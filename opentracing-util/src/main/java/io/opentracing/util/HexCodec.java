@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.util;
+
+/**
+ * Lowercase hex encoding and decoding of ids, working on char arrays and CharSequences so that neither direction
+ * needs intermediate Strings.
+ *
+ * @see TraceParent
+ */
+public final class HexCodec {
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        for (int i = 0; i < VALUES.length; i++) {
+            VALUES[i] = -1;
+        }
+        for (int i = 0; i < DIGITS.length; i++) {
+            VALUES[DIGITS[i]] = (byte) i;
+        }
+    }
+
+    private HexCodec() {}
+
+    /**
+     * Writes the 16 lowercase hex digits of value, zero padded, at dst[offset].
+     */
+    public static void encode(long value, char[] dst, int offset) {
+        for (int i = offset + 15; i >= offset; i--) {
+            dst[i] = DIGITS[(int) value & 0xf];
+            value >>>= 4;
+        }
+    }
+
+    /**
+     * Writes the 2 lowercase hex digits of the low byte of value at dst[offset].
+     */
+    public static void encodeByte(int value, char[] dst, int offset) {
+        dst[offset] = DIGITS[(value >>> 4) & 0xf];
+        dst[offset + 1] = DIGITS[value & 0xf];
+    }
+
+    /**
+     * @return the 16 lowercase hex digits of value, zero padded
+     */
+    public static String toHex(long value) {
+        char[] chars = new char[16];
+        encode(value, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * @return the 32 lowercase hex digits of the 128-bit value high:low, zero padded
+     */
+    public static String toHex(long high, long low) {
+        char[] chars = new char[32];
+        encode(high, chars, 0);
+        encode(low, chars, 16);
+        return new String(chars);
+    }
+
+    /**
+     * @return the value of a lowercase hex digit, or -1 if c is not one
+     */
+    public static int digit(char c) {
+        return c < VALUES.length ? VALUES[c] : -1;
+    }
+
+    /**
+     * @return whether the length chars of s from offset are all lowercase hex digits
+     */
+    public static boolean isHex(CharSequence s, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (digit(s.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes up to 16 lowercase hex digits.
+     *
+     * @return the value of the length chars of s from offset
+     * @throws IllegalArgumentException if length is not between 1 and 16, or a char is not a lowercase hex digit
+     */
+    public static long decode(CharSequence s, int offset, int length) {
+        if (length < 1 || length > 16) {
+            throw new IllegalArgumentException("length needs to be between 1 and 16");
+        }
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int digit = digit(s.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Not a lowercase hex digit");
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+}
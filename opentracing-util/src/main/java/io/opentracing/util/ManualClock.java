@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Clock} that only moves when told to, so that tests can assert on exact timestamps and durations.
+ *
+ * <pre><code>
+ * ManualClock clock = new ManualClock(1000);
+ * Span span = tracer.buildSpan("op").start();  // startMicros 1000
+ * clock.advance(250, TimeUnit.MICROSECONDS);
+ * span.finish();                                // finishMicros 1250
+ * </code></pre>
+ */
+public final class ManualClock implements Clock {
+    private final AtomicLong nowMicros;
+
+    /**
+     * Create a ManualClock set to one second after the epoch, so that a span started and finished without moving
+     * the clock still has positive timestamps.
+     */
+    public ManualClock() {
+        this(TimeUnit.SECONDS.toMicros(1));
+    }
+
+    /**
+     * @param nowMicros the initial time, in microseconds since the epoch
+     */
+    public ManualClock(long nowMicros) {
+        this.nowMicros = new AtomicLong(nowMicros);
+    }
+
+    @Override
+    public long nowMicros() {
+        return nowMicros.get();
+    }
+
+    /**
+     * Move this clock forward.
+     *
+     * @param duration how far to move, not negative
+     * @param unit the unit of {@code duration}
+     * @return the new time, in microseconds since the epoch
+     */
+    public long advance(long duration, TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("duration cannot be negative");
+        }
+        return nowMicros.addAndGet(unit.toMicros(duration));
+    }
+
+    /**
+     * Set this clock to the given time, which may also move it backwards.
+     *
+     * @param nowMicros the new time, in microseconds since the epoch
+     */
+    public void set(long nowMicros) {
+        this.nowMicros.set(nowMicros);
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.util;
+
+/**
+ * A {@link Clock} reading {@link System#currentTimeMillis()}.
+ *
+ * <p>
+ * Timestamps are in microseconds but only have millisecond resolution, so operations shorter than a millisecond
+ * are usually reported with a duration of zero. Use a {@link NanoClock} to measure them.
+ */
+public final class MillisClock implements Clock {
+
+    @Override
+    public long nowMicros() {
+        return System.currentTimeMillis() * 1000;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.util;
+
+/**
+ * A {@link Clock} with microsecond resolution, measuring {@link System#nanoTime()} from an anchor taken on the
+ * wall clock when it is created.
+ *
+ * <p>
+ * Durations between two timestamps are accurate to the resolution of {@link System#nanoTime()}, and never
+ * negative. As {@link System#nanoTime()} does not follow adjustments of the wall clock (e.g. by NTP), timestamps
+ * drift away from {@link System#currentTimeMillis()} over time; create a new NanoClock to anchor it again.
+ */
+public final class NanoClock implements Clock {
+    private final long anchorMicros;
+    private final long anchorNanos;
+
+    public NanoClock() {
+        // Anchor on the edge of a millisecond, so that the anchor is not up to a millisecond behind the wall clock.
+        long millis = System.currentTimeMillis();
+        long edge;
+        while ((edge = System.currentTimeMillis()) == millis) {
+            // spin, for at most one tick of the wall clock.
+        }
+        this.anchorNanos = System.nanoTime();
+        this.anchorMicros = edge * 1000;
+    }
+
+    @Override
+    public long nowMicros() {
+        return anchorMicros + (System.nanoTime() - anchorNanos) / 1000;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.util;
+
+import io.opentracing.Scope;
+import io.opentracing.ScopeManager;
+import io.opentracing.Span;
+import java.util.concurrent.Callable;
+
+/**
+ * A {@link ScopeManager} for virtual threads, keeping the active spans of a task in a {@code ScopedValue} binding
+ * rather than in thread-local storage.
+ *
+ * <p>
+ * This is the fallback loaded before Java 25, which has no {@code ScopedValue}: it keeps the active spans on the
+ * thread-local stack of a {@link StackScopeManager}, and {@link #isSupported()} returns false. Tasks run through
+ * {@link #run(Span, Runnable)} or {@link #call(Span, Callable)} still see the given span as active for as long as they
+ * run. The multi-release opentracing-util jar replaces this class with the actual implementation on Java 25 and later.
+ */
+public class ScopedValueScopeManager implements ScopeManager {
+    private final StackScopeManager fallback = new StackScopeManager();
+
+    /**
+     * @return whether this JVM keeps the active spans of tasks in {@code ScopedValue} bindings, which it does on
+     * Java 25 and later; otherwise they are kept on a thread-local stack
+     */
+    public static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * Runs the task in a new frame.
+     *
+     * @param span the span active in the task until it activates another one, may be null
+     */
+    public void run(Span span, Runnable task) {
+        Scope scope = fallback.activate(span);
+        try {
+            task.run();
+        } finally {
+            scope.close();
+        }
+    }
+
+    /**
+     * Calls the operation in a new frame.
+     *
+     * @param span the span active in the operation until it activates another one, may be null
+     * @return the result of the operation
+     */
+    public <R> R call(Span span, Callable<R> op) throws Exception {
+        Scope scope = fallback.activate(span);
+        try {
+            return op.call();
+        } finally {
+            scope.close();
+        }
+    }
+
+    @Override
+    public Scope activate(Span span) {
+        return fallback.activate(span);
+    }
+
+    @Override
+    public Span activeSpan() {
+        return fallback.activeSpan();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.util;
+
+import io.opentracing.Scope;
+import io.opentracing.ScopeManager;
+import io.opentracing.Span;
+
+/**
+ * A {@link ScopeManager} keeping the active spans of each thread on an array stack, which activates and closes
+ * scopes without allocating once a thread has reached its deepest nesting.
+ *
+ * <p>
+ * Each thread owns a growable array of active spans and one {@link Scope} handle per nesting depth, handed out again
+ * by every activation at that depth. Like {@link ThreadLocalScopeManager}, closing a scope that is not the innermost
+ * active one of the current thread is ignored. As handles are reused, a scope must be closed at most once: closing it
+ * again after a new activation at the same depth closes that activation.
+ */
+public class StackScopeManager implements ScopeManager {
+    private static final int INITIAL_DEPTH = 8;
+
+    private final ThreadLocal<Stack> stacks = new ThreadLocal<Stack>();
+
+    @Override
+    public Scope activate(Span span) {
+        Stack stack = stacks.get();
+        if (stack == null) {
+            stack = new Stack(null, INITIAL_DEPTH);
+            stacks.set(stack);
+        }
+        return stack.push(span);
+    }
+
+    @Override
+    public Span activeSpan() {
+        Stack stack = stacks.get();
+        return stack == null ? null : stack.top();
+    }
+
+    /**
+     * The spans activated by one thread over a base span, which is active while the stack is empty.
+     */
+    static final class Stack {
+        private final Thread owner = Thread.currentThread();
+        private final Span base;
+        private Span[] spans;
+        private StackScope[] scopes;
+        private int depth;
+
+        Stack(Span base, int initialDepth) {
+            this.base = base;
+            this.spans = new Span[initialDepth];
+            this.scopes = new StackScope[initialDepth];
+        }
+
+        boolean isOwner() {
+            return owner == Thread.currentThread();
+        }
+
+        Scope push(Span span) {
+            if (depth == spans.length) {
+                Span[] grownSpans = new Span[depth * 2];
+                System.arraycopy(spans, 0, grownSpans, 0, depth);
+                spans = grownSpans;
+                StackScope[] grownScopes = new StackScope[depth * 2];
+                System.arraycopy(scopes, 0, grownScopes, 0, depth);
+                scopes = grownScopes;
+            }
+            StackScope scope = scopes[depth];
+            if (scope == null) {
+                scope = new StackScope(this, depth);
+                scopes[depth] = scope;
+            }
+            spans[depth++] = span;
+            return scope;
+        }
+
+        Span base() {
+            return base;
+        }
+
+        Span top() {
+            return depth == 0 ? base : spans[depth - 1];
+        }
+
+        void pop(int index) {
+            if (!isOwner() || index != depth - 1) {
+                // This shouldn't happen if users call methods in the expected order. Bail out.
+                return;
+            }
+            spans[index] = null;
+            depth = index;
+        }
+    }
+
+    private static final class StackScope implements Scope {
+        private final Stack stack;
+        private final int index;
+
+        StackScope(Stack stack, int index) {
+            this.stack = stack;
+            this.index = index;
+        }
+
+        @Override
+        public void close() {
+            stack.pop(index);
+        }
+    }
+}
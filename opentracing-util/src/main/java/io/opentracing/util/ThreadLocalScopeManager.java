@@ -21,6 +21,7 @@ import io.opentracing.Span;
  * A simple {@link ScopeManager} implementation built on top of Java's thread-local storage primitive.
  *
  * @see ThreadLocalScope
+ * @see StackScopeManager
  */
 public class ThreadLocalScopeManager implements ScopeManager {
     final ThreadLocal<ThreadLocalScope> tlsScope = new ThreadLocal<ThreadLocalScope>();
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.util;
+
+/**
+ * The W3C Trace Context {@code traceparent} header: a version, a 128-bit trace id, a 64-bit parent (span) id and
+ * trace flags, as {@code 00-<32 hex digits>-<16 hex digits>-<2 hex digits>}.
+ *
+ * Parsing never throws, never allocates and validates and decodes in a single pass over the first
+ * {@value #LENGTH} chars of a header, so malformed or oversized headers are rejected in bounded time. Headers of a
+ * later version are accepted as long as their first {@value #LENGTH} chars follow this layout and are followed by
+ * nothing or a '-', as the specification requires.
+ *
+ * <pre><code>
+ * TraceParent traceParent = new TraceParent();
+ * if (traceParent.parse(headers.get(TraceParent.HEADER))) {
+ *     long traceIdHigh = traceParent.traceIdHigh();
+ *     ...
+ * }
+ * </code></pre>
+ *
+ * A TraceParent holds the result of its last successful parse, and is not thread-safe.
+ */
+public final class TraceParent {
+    public static final String HEADER = "traceparent";
+    public static final int LENGTH = 55;
+    public static final int FLAG_SAMPLED = 0x01;
+
+    private static final int TRACE_ID_OFFSET = 3;
+    private static final int SPAN_ID_OFFSET = 36;
+    private static final int FLAGS_OFFSET = 53;
+
+    private long traceIdHigh;
+    private long traceId;
+    private long spanId;
+    private int flags;
+
+    /**
+     * @return the version 00 header of the given ids and flags
+     */
+    public static String format(long traceIdHigh, long traceId, long spanId, int flags) {
+        char[] chars = new char[LENGTH];
+        format(traceIdHigh, traceId, spanId, flags, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * Writes the {@value #LENGTH} chars of the version 00 header of the given ids and flags at dst[offset].
+     */
+    public static void format(long traceIdHigh, long traceId, long spanId, int flags, char[] dst, int offset) {
+        dst[offset] = '0';
+        dst[offset + 1] = '0';
+        dst[offset + TRACE_ID_OFFSET - 1] = '-';
+        HexCodec.encode(traceIdHigh, dst, offset + TRACE_ID_OFFSET);
+        HexCodec.encode(traceId, dst, offset + TRACE_ID_OFFSET + 16);
+        dst[offset + SPAN_ID_OFFSET - 1] = '-';
+        HexCodec.encode(spanId, dst, offset + SPAN_ID_OFFSET);
+        dst[offset + FLAGS_OFFSET - 1] = '-';
+        HexCodec.encodeByte(flags, dst, offset + FLAGS_OFFSET);
+    }
+
+    /**
+     * @param header the header value, possibly null
+     * @return whether the header is valid; only then are the ids and flags of this TraceParent updated
+     */
+    public boolean parse(CharSequence header) {
+        if (header == null || header.length() < LENGTH) {
+            return false;
+        }
+        if (!HexCodec.isHex(header, 0, 2) || header.charAt(0) == 'f' && header.charAt(1) == 'f') {
+            return false;
+        }
+        boolean version00 = header.charAt(0) == '0' && header.charAt(1) == '0';
+        if (version00 ? header.length() != LENGTH : header.length() > LENGTH && header.charAt(LENGTH) != '-') {
+            return false;
+        }
+        if (header.charAt(TRACE_ID_OFFSET - 1) != '-' || header.charAt(SPAN_ID_OFFSET - 1) != '-'
+                || header.charAt(FLAGS_OFFSET - 1) != '-') {
+            return false;
+        }
+        // Validate and decode in a single pass: digit() is negative for anything but a lowercase hex digit.
+        int invalid = 0;
+        long traceIdHigh = 0;
+        long traceId = 0;
+        long spanId = 0;
+        for (int i = 0; i < 16; i++) {
+            int high = HexCodec.digit(header.charAt(TRACE_ID_OFFSET + i));
+            int low = HexCodec.digit(header.charAt(TRACE_ID_OFFSET + 16 + i));
+            int span = HexCodec.digit(header.charAt(SPAN_ID_OFFSET + i));
+            invalid |= high | low | span;
+            traceIdHigh = (traceIdHigh << 4) | high;
+            traceId = (traceId << 4) | low;
+            spanId = (spanId << 4) | span;
+        }
+        int flagsHigh = HexCodec.digit(header.charAt(FLAGS_OFFSET));
+        int flagsLow = HexCodec.digit(header.charAt(FLAGS_OFFSET + 1));
+        if ((invalid | flagsHigh | flagsLow) < 0 || traceIdHigh == 0 && traceId == 0 || spanId == 0) {
+            return false;
+        }
+        this.traceIdHigh = traceIdHigh;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.flags = (flagsHigh << 4) | flagsLow;
+        return true;
+    }
+
+    /**
+     * @return the upper 64 bits of the trace id
+     */
+    public long traceIdHigh() {
+        return traceIdHigh;
+    }
+
+    /**
+     * @return the lower 64 bits of the trace id
+     */
+    public long traceId() {
+        return traceId;
+    }
+
+    /**
+     * @return the parent id, i.e. the id of the Span that sent the header
+     */
+    public long spanId() {
+        return spanId;
+    }
+
+    public int flags() {
+        return flags;
+    }
+
+    public boolean sampled() {
+        return (flags & FLAG_SAMPLED) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return format(traceIdHigh, traceId, spanId, flags);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.util;
+
+import io.opentracing.Tracer;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * An {@link ExecutorService} running each task with the span that was active in the submitting thread, so that
+ * spans started by the task are children of it.
+ *
+ * <p>
+ * The active span is captured by {@link Tracer#activeSpan()} when the task is submitted, and activated by
+ * {@link Tracer#activateSpan(io.opentracing.Span)} around the task in the worker thread, at the cost of one wrapper
+ * per task. Tasks submitted while no span is active are handed over to the delegate unwrapped.
+ */
+public class TracedExecutorService implements ExecutorService {
+    private final ExecutorService delegate;
+    final Tracer tracer;
+
+    public TracedExecutorService(ExecutorService delegate, Tracer tracer) {
+        if (delegate == null) {
+            throw new NullPointerException("delegate");
+        }
+        if (tracer == null) {
+            throw new NullPointerException("tracer");
+        }
+        this.delegate = delegate;
+        this.tracer = tracer;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(TracedRunnable.wrap(command, tracer));
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        return delegate.submit(TracedRunnable.wrap(task, tracer));
+    }
+
+    @Override
+    public <T> Future<T> submit(Runnable task, T result) {
+        return delegate.submit(TracedRunnable.wrap(task, tracer), result);
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return delegate.submit(TracedCallable.wrap(task, tracer));
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+        return delegate.invokeAll(TracedCallable.wrapAll(tasks, tracer));
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return delegate.invokeAll(TracedCallable.wrapAll(tasks, tracer), timeout, unit);
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+        return delegate.invokeAny(TracedCallable.wrapAll(tasks, tracer));
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        return delegate.invokeAny(TracedCallable.wrapAll(tasks, tracer), timeout, unit);
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.util;
+
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+
+/**
+ * A Runnable activating the span that was active when it was created, for the time it runs.
+ */
+final class TracedRunnable implements Runnable {
+    private final Runnable delegate;
+    private final Tracer tracer;
+    private final Span span;
+
+    private TracedRunnable(Runnable delegate, Tracer tracer, Span span) {
+        this.delegate = delegate;
+        this.tracer = tracer;
+        this.span = span;
+    }
+
+    /**
+     * @return the task wrapped with the active span, or the task itself if no span is active
+     */
+    static Runnable wrap(Runnable task, Tracer tracer) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        Span span = tracer.activeSpan();
+        return span == null ? task : new TracedRunnable(task, tracer, span);
+    }
+
+    @Override
+    public void run() {
+        Scope scope = tracer.activateSpan(span);
+        try {
+            delegate.run();
+        } finally {
+            scope.close();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.util;
+
+import io.opentracing.Tracer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ScheduledExecutorService} running each task with the span that was active when it was scheduled, as
+ * {@link TracedExecutorService} does. Periodic tasks activate that span on every run, including runs after it has
+ * finished, which keeps the spans they start in the same trace.
+ */
+public class TracedScheduledExecutorService extends TracedExecutorService implements ScheduledExecutorService {
+    private final ScheduledExecutorService delegate;
+
+    public TracedScheduledExecutorService(ScheduledExecutorService delegate, Tracer tracer) {
+        super(delegate, tracer);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return delegate.schedule(TracedRunnable.wrap(command, tracer), delay, unit);
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return delegate.schedule(TracedCallable.wrap(callable, tracer), delay, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        return delegate.scheduleAtFixedRate(TracedRunnable.wrap(command, tracer), initialDelay, period, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay,
+                                                     TimeUnit unit) {
+        return delegate.scheduleWithFixedDelay(TracedRunnable.wrap(command, tracer), initialDelay, delay, unit);
+    }
+}
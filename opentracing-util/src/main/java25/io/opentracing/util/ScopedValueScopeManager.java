@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.util;
+
+import io.opentracing.Scope;
+import io.opentracing.ScopeManager;
+import io.opentracing.Span;
+import java.util.concurrent.Callable;
+
+/**
+ * A {@link ScopeManager} for virtual threads, keeping the active spans of a task in a {@link ScopedValue} binding
+ * rather than in thread-local storage.
+ *
+ * <p>
+ * Tasks run through {@link #run(Span, Runnable)} or {@link #call(Span, Callable)} get a frame holding
+ * the given span for as long as they run. Within a task, {@link #activate(Span)} pushes spans on the frame like
+ * {@link StackScopeManager} does on its thread-local stack, and the frame goes away with the task: a virtual thread
+ * running one task leaves nothing behind and never creates a thread-local map.
+ *
+ * <p>
+ * Threads forked by the task with a {@code StructuredTaskScope} inherit the binding: their active span is the one
+ * given to run() or call(), not the spans the task activated since. The spans they activate themselves, like the
+ * spans activated outside any task, are kept on a thread-local stack.
+ *
+ * <p>
+ * This implementation is only loaded on Java 25 and later, from the multi-release opentracing-util jar. Older JVMs
+ * load a fallback with the same methods, which keeps all the active spans on a thread-local stack and whose
+ * {@link #isSupported()} returns false.
+ */
+public class ScopedValueScopeManager implements ScopeManager {
+    // Tasks usually nest few spans, and a frame lives as long as its task.
+    private static final int INITIAL_DEPTH = 2;
+
+    private final ScopedValue<StackScopeManager.Stack> frame = ScopedValue.newInstance();
+    private final StackScopeManager fallback = new StackScopeManager();
+
+    /**
+     * @return whether this JVM keeps the active spans of tasks in {@code ScopedValue} bindings, which it does on
+     * Java 25 and later; otherwise they are kept on a thread-local stack
+     */
+    public static boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * Runs the task in a new frame.
+     *
+     * @param span the span active in the task until it activates another one, may be null
+     */
+    public void run(Span span, Runnable task) {
+        ScopedValue.where(frame, new StackScopeManager.Stack(span, INITIAL_DEPTH)).run(task);
+    }
+
+    /**
+     * Calls the operation in a new frame.
+     *
+     * @param span the span active in the operation until it activates another one, may be null
+     * @return the result of the operation
+     */
+    public <R> R call(Span span, Callable<R> op) throws Exception {
+        return ScopedValue.where(frame, new StackScopeManager.Stack(span, INITIAL_DEPTH)).call(op::call);
+    }
+
+    @Override
+    public Scope activate(Span span) {
+        if (frame.isBound()) {
+            StackScopeManager.Stack stack = frame.get();
+            if (stack.isOwner()) {
+                return stack.push(span);
+            }
+        }
+        return fallback.activate(span);
+    }
+
+    @Override
+    public Span activeSpan() {
+        if (!frame.isBound()) {
+            return fallback.activeSpan();
+        }
+        StackScopeManager.Stack stack = frame.get();
+        if (stack.isOwner()) {
+            return stack.top();
+        }
+        Span forked = fallback.activeSpan();
+        return forked != null ? forked : stack.base();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class ClockTest {
+
+    @Test
+    public void millisClock() {
+        long before = System.currentTimeMillis() * 1000;
+        long now = new MillisClock().nowMicros();
+        assertTrue(before <= now);
+        assertTrue(now <= System.currentTimeMillis() * 1000);
+        assertEquals(0, now % 1000);
+    }
+
+    @Test
+    public void nanoClockFollowsWallClock() {
+        NanoClock clock = new NanoClock();
+        long before = System.currentTimeMillis() * 1000;
+        long now = clock.nowMicros();
+        // The anchor is taken on the edge of a millisecond, so the clocks agree to within a millisecond.
+        assertTrue(now >= before - 1000);
+        assertTrue(now <= System.currentTimeMillis() * 1000 + 1000);
+    }
+
+    @Test
+    public void nanoClockMeasuresSubMillisecondDurations() {
+        NanoClock clock = new NanoClock();
+        long start = clock.nowMicros();
+        long startNanos = System.nanoTime();
+        while (System.nanoTime() - startNanos < TimeUnit.MICROSECONDS.toNanos(200)) {
+            // spin
+        }
+        long duration = clock.nowMicros() - start;
+        assertTrue("duration was " + duration, duration >= 200);
+        assertTrue("duration was " + duration, duration < 1000 * 1000);
+    }
+
+    @Test
+    public void coarseClockAdvancesEveryTick() throws InterruptedException {
+        ManualClock source = new ManualClock(1000);
+        CoarseClock clock = new CoarseClock(source, 1, TimeUnit.MILLISECONDS);
+        try {
+            assertEquals(1000, clock.nowMicros());
+            source.advance(5, TimeUnit.MILLISECONDS);
+            long deadline = System.currentTimeMillis() + 10000;
+            while (clock.nowMicros() != 6000 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(6000, clock.nowMicros());
+        } finally {
+            clock.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void coarseClockInvalidTick() {
+        new CoarseClock(new MillisClock(), 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void manualClock() {
+        ManualClock clock = new ManualClock(1000);
+        assertEquals(1000, clock.nowMicros());
+        assertEquals(1250, clock.advance(250, TimeUnit.MICROSECONDS));
+        assertEquals(3250, clock.advance(2, TimeUnit.MILLISECONDS));
+        assertEquals(3250, clock.nowMicros());
+        clock.set(10);
+        assertEquals(10, clock.nowMicros());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void manualClockCannotGoBackwards() {
+        new ManualClock().advance(-1, TimeUnit.MICROSECONDS);
+    }
+}
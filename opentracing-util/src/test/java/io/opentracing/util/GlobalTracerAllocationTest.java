@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.util;
+
+import static io.opentracing.noop.AllocationTestUtil.assertBudget;
+import static io.opentracing.noop.AllocationTestUtil.assumeAllocationCounting;
+
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import io.opentracing.Tracer;
+import io.opentracing.noop.AllocationTestUtil.Call;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMapAdapter;
+import java.util.HashMap;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks that forwarding through the {@link GlobalTracer} to the default noop tracer does not allocate,
+ * as reported by {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}.
+ */
+public class GlobalTracerAllocationTest {
+    private final Tracer tracer = GlobalTracer.get();
+    private final Span span = tracer.buildSpan("op").start();
+    private final SpanContext spanContext = span.context();
+    private final TextMapAdapter carrier = new TextMapAdapter(new HashMap<String, String>());
+
+    @BeforeClass
+    public static void setUp() {
+        GlobalTracerTestUtil.resetGlobalTracer();
+
+        assumeAllocationCounting();
+    }
+
+    @After
+    public void tearDown() {
+        GlobalTracerTestUtil.resetGlobalTracer();
+    }
+
+    @Test
+    public void forwardingToNoopTracer() {
+        assertBudget("GlobalTracer.scopeManager()", 0, new Call() {
+            public Object run() { return tracer.scopeManager(); }
+        });
+        assertBudget("GlobalTracer.activeSpan()", 0, new Call() {
+            public Object run() { return tracer.activeSpan(); }
+        });
+        assertBudget("GlobalTracer.activateSpan()", 0, new Call() {
+            public Object run() { return tracer.activateSpan(span); }
+        });
+        assertBudget("GlobalTracer.buildSpan().start()", 0, new Call() {
+            public Object run() { return tracer.buildSpan("op").withTag("key", "value").start(); }
+        });
+        assertBudget("GlobalTracer.inject()", 0, new Call() {
+            public Object run() {
+                tracer.inject(spanContext, Format.Builtin.TEXT_MAP, carrier);
+                return carrier;
+            }
+        });
+        assertBudget("GlobalTracer.extract()", 0, new Call() {
+            public Object run() { return tracer.extract(Format.Builtin.TEXT_MAP, carrier); }
+        });
+    }
+}
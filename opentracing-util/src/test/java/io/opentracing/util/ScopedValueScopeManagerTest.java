@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class ScopedValueScopeManagerTest {
+    private final ScopedValueScopeManager scopeManager = new ScopedValueScopeManager();
+
+    @Test
+    public void fallbackBeforeJava25() {
+        // The tests run against the classes of the main tree, not against the multi-release jar.
+        assertFalse(ScopedValueScopeManager.isSupported());
+    }
+
+    @Test
+    public void runActivatesSpan() {
+        final Span span = mock(Span.class);
+        final AtomicReference<Span> active = new AtomicReference<Span>();
+
+        scopeManager.run(span, new Runnable() {
+            @Override
+            public void run() {
+                active.set(scopeManager.activeSpan());
+            }
+        });
+        assertSame(span, active.get());
+        assertNull(scopeManager.activeSpan());
+    }
+
+    @Test
+    public void runWithoutSpan() {
+        Span outer = mock(Span.class);
+        final AtomicReference<Span> active = new AtomicReference<Span>(outer);
+
+        Scope scope = scopeManager.activate(outer);
+        scopeManager.run(null, new Runnable() {
+            @Override
+            public void run() {
+                active.set(scopeManager.activeSpan());
+            }
+        });
+        assertNull(active.get());
+        assertSame(outer, scopeManager.activeSpan());
+        scope.close();
+    }
+
+    @Test
+    public void nestedActivationInTask() throws Exception {
+        final Span span = mock(Span.class);
+        final Span inner = mock(Span.class);
+
+        String result = scopeManager.call(span, new Callable<String>() {
+            @Override
+            public String call() {
+                Scope scope = scopeManager.activate(inner);
+                assertSame(inner, scopeManager.activeSpan());
+                scope.close();
+                assertSame(span, scopeManager.activeSpan());
+                return "done";
+            }
+        });
+        assertEquals("done", result);
+        assertNull(scopeManager.activeSpan());
+    }
+
+    @Test
+    public void callClosesScopeOnFailure() {
+        final Exception failure = new Exception("failure");
+        try {
+            scopeManager.call(mock(Span.class), new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    throw failure;
+                }
+            });
+            fail();
+        } catch (Exception e) {
+            assertSame(failure, e);
+        }
+        assertNull(scopeManager.activeSpan());
+    }
+}
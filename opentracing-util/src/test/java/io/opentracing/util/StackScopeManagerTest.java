@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.util;
+
+import static io.opentracing.noop.AllocationTestUtil.assertBudget;
+import static io.opentracing.noop.AllocationTestUtil.assumeAllocationCounting;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.noop.AllocationTestUtil.Call;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class StackScopeManagerTest {
+    private final StackScopeManager source = new StackScopeManager();
+
+    @Test
+    public void missingActiveSpan() {
+        assertNull(source.activeSpan());
+    }
+
+    @Test
+    public void nestedActivation() {
+        Span outer = mock(Span.class);
+        Span inner = mock(Span.class);
+
+        Scope outerScope = source.activate(outer);
+        Scope innerScope = source.activate(inner);
+        assertSame(inner, source.activeSpan());
+        innerScope.close();
+        assertSame(outer, source.activeSpan());
+        outerScope.close();
+        assertNull(source.activeSpan());
+    }
+
+    @Test
+    public void outOfOrderCloseIsIgnored() {
+        Span outer = mock(Span.class);
+        Span inner = mock(Span.class);
+
+        Scope outerScope = source.activate(outer);
+        Scope innerScope = source.activate(inner);
+        outerScope.close();
+        assertSame(inner, source.activeSpan());
+        innerScope.close();
+        assertSame(outer, source.activeSpan());
+        outerScope.close();
+        assertNull(source.activeSpan());
+    }
+
+    @Test
+    public void deepActivation() {
+        Span[] spans = new Span[100];
+        Scope[] scopes = new Scope[spans.length];
+        for (int i = 0; i < spans.length; i++) {
+            spans[i] = mock(Span.class);
+            scopes[i] = source.activate(spans[i]);
+        }
+        for (int i = spans.length - 1; i >= 0; i--) {
+            assertSame(spans[i], source.activeSpan());
+            scopes[i].close();
+        }
+        assertNull(source.activeSpan());
+    }
+
+    @Test
+    public void closeFromOtherThreadIsIgnored() throws InterruptedException {
+        Span span = mock(Span.class);
+        final Scope scope = source.activate(span);
+        final AtomicReference<Span> otherActiveSpan = new AtomicReference<Span>(span);
+        Thread other = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                scope.close();
+                otherActiveSpan.set(source.activeSpan());
+            }
+        });
+        other.start();
+        other.join();
+
+        assertNull(otherActiveSpan.get());
+        assertSame(span, source.activeSpan());
+        scope.close();
+        assertNull(source.activeSpan());
+    }
+
+    @Test
+    public void nestedActivationDoesNotAllocate() {
+        assumeAllocationCounting();
+
+        final Span outer = mock(Span.class);
+        final Span inner = mock(Span.class);
+        assertBudget("Nested activation", 0, new Call() {
+            public Object run() {
+                activateNested(outer, inner);
+                return source;
+            }
+        });
+    }
+
+    private void activateNested(Span outer, Span inner) {
+        Scope outerScope = source.activate(outer);
+        Scope innerScope = source.activate(inner);
+        assertSame(inner, source.activeSpan());
+        innerScope.close();
+        outerScope.close();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016-2019 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.CharBuffer;
+import org.junit.Test;
+
+public class TraceParentTest {
+    private static final String HEADER = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    @Test
+    public void hexRoundTrip() {
+        char[] chars = new char[16];
+        for (long value : new long[] {0, 1, 0xabcL, Long.MAX_VALUE, Long.MIN_VALUE, -1}) {
+            HexCodec.encode(value, chars, 0);
+            assertEquals(value, HexCodec.decode(new String(chars), 0, 16));
+            assertEquals(String.format("%016x", value), new String(chars));
+        }
+        assertEquals("000000000000000a0000000000000001", HexCodec.toHex(10, 1));
+        assertEquals(0xabL, HexCodec.decode("xxab", 2, 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void hexRejectsUppercase() {
+        HexCodec.decode("AB", 0, 2);
+    }
+
+    @Test
+    public void hexDigits() {
+        assertEquals(15, HexCodec.digit('f'));
+        assertEquals(-1, HexCodec.digit('g'));
+        assertEquals(-1, HexCodec.digit('F'));
+        assertEquals(-1, HexCodec.digit('\u0660'));
+        assertTrue(HexCodec.isHex("0a9f", 0, 4));
+        assertFalse(HexCodec.isHex("0a-f", 0, 4));
+    }
+
+    @Test
+    public void parse() {
+        TraceParent traceParent = new TraceParent();
+        assertTrue(traceParent.parse(HEADER));
+        assertEquals(0x4bf92f3577b34da6L, traceParent.traceIdHigh());
+        assertEquals(0xa3ce929d0e0e4736L, traceParent.traceId());
+        assertEquals(0x00f067aa0ba902b7L, traceParent.spanId());
+        assertEquals(1, traceParent.flags());
+        assertTrue(traceParent.sampled());
+        assertEquals(HEADER, traceParent.toString());
+    }
+
+    @Test
+    public void parseCharArray() {
+        char[] chars = new char[TraceParent.LENGTH + 4];
+        TraceParent.format(1, 2, 3, 0, chars, 4);
+        TraceParent traceParent = new TraceParent();
+        assertTrue(traceParent.parse(CharBuffer.wrap(chars, 4, TraceParent.LENGTH)));
+        assertEquals(1, traceParent.traceIdHigh());
+        assertEquals(2, traceParent.traceId());
+        assertEquals(3, traceParent.spanId());
+        assertFalse(traceParent.sampled());
+    }
+
+    @Test
+    public void parseLaterVersion() {
+        TraceParent traceParent = new TraceParent();
+        assertTrue(traceParent.parse("01" + HEADER.substring(2)));
+        assertTrue(traceParent.parse("01" + HEADER.substring(2) + "-what-the-future-holds"));
+        assertFalse(traceParent.parse("01" + HEADER.substring(2) + "x"));
+    }
+
+    @Test
+    public void rejectMalformed() {
+        String[] malformed = {
+                null,
+                "",
+                HEADER.substring(1),
+                HEADER + "-",
+                "ff" + HEADER.substring(2),
+                "0g" + HEADER.substring(2),
+                HEADER.toUpperCase(),
+                HEADER.replace('-', '_'),
+                "00-00000000000000000000000000000000-00f067aa0ba902b7-01",
+                "00-4bf92f3577b34da6a3ce929d0e0e4736-0000000000000000-01",
+                "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-0x",
+                "00-4bf92f3577b34da6a3ce929d0e0e473-600f067aa0ba902b7-01",
+        };
+        TraceParent traceParent = new TraceParent();
+        assertTrue(traceParent.parse(HEADER));
+        for (String header : malformed) {
+            assertFalse(header, traceParent.parse(header));
+        }
+        // A failed parse leaves the last valid one in place.
+        assertEquals(HEADER, traceParent.toString());
+    }
+}